@@ -52,9 +52,13 @@
 package net.sf.classifier4j7;
 
 import net.sf.classifier4j7.tokenizer.DefaultTokenizer;
+import net.sf.classifier4j7.tokenizer.IStreamingTokenizer;
 import net.sf.classifier4j7.tokenizer.ITokenizer;
+import net.sf.classifier4j7.tokenizer.TokenCursor;
 import net.sf.classifier4j7.tokenizer.TokenizerMethod;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.Deque;
 /**
@@ -68,6 +72,9 @@ import java.util.Deque;
  * overridden.</p> 
  * 
  * 
+ * <p>{@link net.sf.classifier4j7.tokenizer.HTMLTokenizer} tokenizes in a single pass and decodes
+ * the common entities.</p>
+ *
  * @since 18 Nov 2003
  * @author Nick Lothian
  */
@@ -103,6 +110,31 @@ public class SimpleHTMLTokenizer extends DefaultTokenizer {
      */
     @Override
     public String[] tokenize(String input) {
+        return super.tokenize(extractText(input));
+    }
+
+    /**
+     * @see IStreamingTokenizer#tokens(java.lang.CharSequence)
+     */
+    @Override
+    public TokenCursor tokens(CharSequence input) {
+        return super.tokens(extractText(input.toString()));
+    }
+
+    /**
+     * Decodes the bytes, the tags have to be removed from the text
+     *
+     * @see DefaultTokenizer#tokens(java.nio.ByteBuffer)
+     */
+    @Override
+    public TokenCursor tokens(ByteBuffer input) {
+        return tokens(StandardCharsets.UTF_8.decode(input.duplicate()));
+    }
+
+    /**
+     * @return the text that would be displayed, with the entities resolved
+     */
+    private String extractText(String input) {
         Deque<Boolean> stack = new ArrayDeque<>();
         Deque<String> tagStack = new ArrayDeque<>();
 
@@ -128,7 +160,7 @@ public class SimpleHTMLTokenizer extends DefaultTokenizer {
             }
         }
 
-        return super.tokenize(resolveEntities(result.toString()).trim());
+        return resolveEntities(result.toString()).trim();
     }
 
     public void handleChar(Deque<Boolean> stack, Deque<String> tagStack, StringBuilder result, StringBuilder currentTagName, char c) {
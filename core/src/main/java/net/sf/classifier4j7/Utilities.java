@@ -53,8 +53,11 @@ package net.sf.classifier4j7;
 
 import net.sf.classifier4j7.stopword.DefaultStopWordsProvider;
 import net.sf.classifier4j7.stopword.IStopWordProvider;
+import net.sf.classifier4j7.tokenizer.AnalysisChain;
 import net.sf.classifier4j7.tokenizer.DefaultTokenizer;
 import net.sf.classifier4j7.tokenizer.ITokenizer;
+import net.sf.classifier4j7.tokenizer.TokenCursor;
+import net.sf.classifier4j7.tokenizer.TokenKey;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -91,23 +94,51 @@ public class Utilities {
     public static Map<String, Integer> getWordFrequency(String input, boolean caseSensitive, ITokenizer tokenizer, IStopWordProvider stopWordsProvider) {
         String convertedInput = caseSensitive ? input : input.toLowerCase();
 
-        // tokenize into an array of words
-        String[] words = tokenizer.tokenize(convertedInput);
-        Arrays.sort(words);
-
-        Set<String> uniqueWords = getUniqueWords(words);
-
+        // count the words as they are tokenized
         Map<String, Integer> result = new HashMap<>();
-        for (String w : uniqueWords) {
-            // no stop word provider, so add all words
-            // add only words that are not stop words
-            if (stopWordsProvider == null || (isWord(w) && !stopWordsProvider.isStopWord(w))) {
-                result.put(w, countWords(w, words));
+        TokenCursor tokens = TokenCursor.of(tokenizer, convertedInput);
+        while (tokens.next()) {
+            String w = tokens.toString();
+            Integer count = result.get(w);
+            if (count != null) {
+                result.put(w, count + 1);
+            } else if (stopWordsProvider == null || (isWord(w) && !stopWordsProvider.isStopWord(w))) {
+                // no stop word provider, so add all words
+                // add only words that are not stop words
+                result.put(w, 1);
             }
         }
         return result;
     }
 
+    /**
+     * Get a Map of the terms of an analysis chain and the number of times each term appears. The
+     * terms are already folded and filtered by the chain, only the distinct ones are copied into Strings.
+     *
+     * @param input         The text to get the term frequency of
+     * @param analysisChain the chain turning the text into terms
+     */
+    public static Map<String, Integer> getWordFrequency(CharSequence input, AnalysisChain analysisChain) {
+        Map<String, int[]> counts = new HashMap<>();
+        TokenKey key = new TokenKey();
+        TokenCursor terms = analysisChain.tokens(input);
+        while (terms.next()) {
+            // the map is probed with the term itself, the terms seen before are not copied again
+            key.set(terms, false);
+            int[] count = counts.get(key);
+            if (count == null) {
+                counts.put(terms.toString(), new int[]{1});
+            } else {
+                count[0]++;
+            }
+        }
+        Map<String, Integer> result = new HashMap<>(counts.size() * 4 / 3 + 1);
+        for (Map.Entry<String, int[]> count : counts.entrySet()) {
+            result.put(count.getKey(), count.getValue()[0]);
+        }
+        return result;
+    }
+
     private static String[] findWordsWithFrequency(Map<String, Integer> wordFrequencies, Integer frequency) {
         if (wordFrequencies == null || frequency == null) {
             return new String[0];
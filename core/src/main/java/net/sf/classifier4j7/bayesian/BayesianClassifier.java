@@ -56,18 +56,26 @@ import net.sf.classifier4j7.ICategorisedClassifier;
 import net.sf.classifier4j7.IClassifier;
 import net.sf.classifier4j7.model.WordProbability;
 import net.sf.classifier4j7.stopword.DefaultStopWordsProvider;
+import net.sf.classifier4j7.stopword.ICharSequenceStopWordProvider;
 import net.sf.classifier4j7.stopword.IStopWordProvider;
+import net.sf.classifier4j7.tokenizer.AnalysisChain;
 import net.sf.classifier4j7.tokenizer.DefaultTokenizer;
 import net.sf.classifier4j7.tokenizer.ITokenizer;
+import net.sf.classifier4j7.tokenizer.TokenCursor;
+import net.sf.classifier4j7.tokenizer.TokenKey;
 import net.sf.classifier4j7.tokenizer.TokenizerMethod;
 import net.sf.classifier4j7.util.ToStringBuilder;
 import net.sf.classifier4j7.worddatasource.ICategorisedWordsDataSource;
+import net.sf.classifier4j7.worddatasource.ITokenLookupWordsDataSource;
 import net.sf.classifier4j7.worddatasource.IWordsDataSource;
+import net.sf.classifier4j7.worddatasource.ShardedWordsDataSource;
 import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
 import net.sf.classifier4j7.worddatasource.WordsDataSourceException;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -103,6 +111,10 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
     private ITokenizer tokenizer;
     private IStopWordProvider stopWordProvider;
     private boolean isCaseSensitive = false;
+    // true if the tokens are the terms of an analysis chain, used as they are
+    private final boolean analyzed;
+    // true if the data source and stop word provider can look up tokens without copying them into Strings
+    private final boolean lookupTokenKeys;
 
     /**
      * Default constructor that uses the SimpleWordsDataSource & a DefaultTokenizer
@@ -132,6 +144,17 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
         this(wd, tokenizer, new DefaultStopWordsProvider());
     }
 
+    /**
+     * Constructor for BayesianClassifier that specifies a datasource & an analysis chain.
+     * The terms of the chain are neither filtered nor transformed by the classifier.
+     *
+     * @param wd            a {@link IWordsDataSource}
+     * @param analysisChain a {@link AnalysisChain}
+     */
+    public BayesianClassifier(IWordsDataSource wd, AnalysisChain analysisChain) {
+        this(wd, analysisChain, analysisChain.getStopWordProvider());
+    }
+
     /**
      * Constructor for BayesianClassifier that specifies a datasource, tokenizer
      * and stop words provider
@@ -144,6 +167,9 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
         this.wordsData = wd;
         this.tokenizer = tokenizer;
         this.stopWordProvider = swp;
+        this.analyzed = tokenizer instanceof AnalysisChain;
+        this.lookupTokenKeys = wd instanceof ITokenLookupWordsDataSource
+                && (analyzed || swp instanceof ICharSequenceStopWordProvider);
     }
 
     /**
@@ -151,7 +177,7 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
      */
     @Override
     public boolean isMatch(String category, String input) throws WordsDataSourceException {
-        return isMatch(category, tokenizer.tokenize(input));
+        return isMatch(category, TokenCursor.of(tokenizer, input));
     }
 
     /**
@@ -160,7 +186,7 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
     @Override
     public double classify(String category, String input) throws WordsDataSourceException {
         try {
-            return classify(category, tokenizer.tokenize(input));
+            return classify(category, TokenCursor.of(tokenizer, input));
         } catch (NullPointerException e) {
             throw new IllegalArgumentException(category == null ? CATEGORY_CANNOT_BE_NULL : INPUT_CANNOT_BE_NULL, e);
         }
@@ -169,7 +195,7 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
     @Override
     public void teachMatch(String category, String input) throws WordsDataSourceException {
         try {
-            teachMatch(category, tokenizer.tokenize(input));
+            teach(category, TokenCursor.of(tokenizer, input), true);
         } catch (NullPointerException e) {
             throw new IllegalArgumentException(category == null ? CATEGORY_CANNOT_BE_NULL : INPUT_CANNOT_BE_NULL, e);
         }
@@ -178,48 +204,206 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
     @Override
     public void teachNonMatch(String category, String input) throws WordsDataSourceException {
         try {
-            teachNonMatch(category, tokenizer.tokenize(input));
+            teach(category, TokenCursor.of(tokenizer, input), false);
         } catch (NullPointerException e) {
             throw new IllegalArgumentException(category == null ? CATEGORY_CANNOT_BE_NULL : INPUT_CANNOT_BE_NULL, e);
         }
     }
 
+    /**
+     * Same as {@link #isMatch(String, String)}, reading the input incrementally.
+     *
+     * @see #classify(String, Reader)
+     */
+    public boolean isMatch(String category, Reader input) throws WordsDataSourceException, IOException {
+        return classify(category, input) >= cutoff;
+    }
+
+    /**
+     * <p>Same as {@link #classify(String, String)}, reading the input incrementally so that the whole
+     * document is never held in memory: the words are looked up one at a time and their probabilities
+     * combined as they are read. The Reader is not closed.</p>
+     *
+     * <p>The probabilities are combined as sums of logarithms, which cannot underflow on long documents,
+     * and {@link #calculateOverallProbability(List)} is not called. An InputStream is classified by
+     * wrapping it in an InputStreamReader of its encoding.</p>
+     */
+    public double classify(String category, Reader input) throws WordsDataSourceException, IOException {
+        if (category == null) {
+            throw new IllegalArgumentException(CATEGORY_CANNOT_BE_NULL);
+        }
+        if (input == null) {
+            throw new IllegalArgumentException(INPUT_CANNOT_BE_NULL);
+        }
+        try {
+            return classifyIncrementally(category, TokenCursor.of(tokenizer, input));
+        } catch (IllegalStateException e) {
+            throw unwrapIOException(e);
+        }
+    }
+
+    /**
+     * Same as {@link #isMatch(String, String)}, on UTF-8 bytes.
+     *
+     * @see #classify(String, ByteBuffer)
+     */
+    public boolean isMatch(String category, ByteBuffer input) throws WordsDataSourceException {
+        return classify(category, input) >= cutoff;
+    }
+
+    /**
+     * <p>Same as {@link #classify(String, String)}, on the UTF-8 bytes between the position and the
+     * limit of the buffer, for example a receive buffer or a mapped file. With a {@link DefaultTokenizer}
+     * the bytes are not decoded to a String, only each token is decoded into a reused buffer and looked
+     * up. A range of a byte array is classified by wrapping it with {@link ByteBuffer#wrap(byte[], int, int)}.</p>
+     *
+     * <p>The probabilities are combined as in {@link #classify(String, Reader)}.</p>
+     */
+    public double classify(String category, ByteBuffer input) throws WordsDataSourceException {
+        if (category == null) {
+            throw new IllegalArgumentException(CATEGORY_CANNOT_BE_NULL);
+        }
+        if (input == null) {
+            throw new IllegalArgumentException(INPUT_CANNOT_BE_NULL);
+        }
+        return classifyIncrementally(category, TokenCursor.of(tokenizer, input));
+    }
+
+    private double classifyIncrementally(String category, TokenCursor tokens) throws WordsDataSourceException {
+        checkCategoriesSupported(category);
+        boolean categorized = isCategorized();
+        TokenKey key = newTokenKey();
+        double logXy = 0d;
+        double logZ = 0d;
+        boolean found = false;
+        while (tokens.next()) {
+            WordProbability wp = getWordProbability(category, tokens, key, categorized);
+            if (wp != null) {
+                logXy += Math.log(wp.getProbability());
+                logZ += Math.log(1 - wp.getProbability());
+                found = true;
+            }
+        }
+        if (!found) {
+            return normalizeSignificance(IClassifier.NEUTRAL_PROBABILITY);
+        }
+        // xy / (xy + z) = 1 / (1 + z / xy)
+        return normalizeSignificance(1 / (1 + Math.exp(logZ - logXy)));
+    }
+
+    /**
+     * Same as {@link #teachMatch(String, String)}, reading the input incrementally. The Reader is not closed.
+     */
+    public void teachMatch(String category, Reader input) throws WordsDataSourceException, IOException {
+        teach(category, input, true);
+    }
+
+    /**
+     * Same as {@link #teachNonMatch(String, String)}, reading the input incrementally. The Reader is not closed.
+     */
+    public void teachNonMatch(String category, Reader input) throws WordsDataSourceException, IOException {
+        teach(category, input, false);
+    }
+
+    private void teach(String category, Reader input, boolean match) throws WordsDataSourceException, IOException {
+        if (category == null) {
+            throw new IllegalArgumentException(CATEGORY_CANNOT_BE_NULL);
+        }
+        if (input == null) {
+            throw new IllegalArgumentException(INPUT_CANNOT_BE_NULL);
+        }
+        try {
+            teach(category, TokenCursor.of(tokenizer, input), match);
+        } catch (IllegalStateException e) {
+            throw unwrapIOException(e);
+        }
+    }
+
+    /**
+     * @return the IllegalStateException, unless it wraps an IOException of the Reader which is thrown instead
+     */
+    private static IllegalStateException unwrapIOException(IllegalStateException e) throws IOException {
+        if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+        }
+        return e;
+    }
+
     protected boolean isMatch(String category, String[] input) throws WordsDataSourceException {
+        return isMatch(category, TokenCursor.of(input));
+    }
+
+    protected double classify(String category, String[] words) throws WordsDataSourceException {
+        return classify(category, TokenCursor.of(words));
+    }
+
+    protected void teachMatch(String category, String[] words) throws WordsDataSourceException {
+        teach(category, TokenCursor.of(words), true);
+    }
+
+    protected void teachNonMatch(String category, String[] words) throws WordsDataSourceException {
+        teach(category, TokenCursor.of(words), false);
+    }
+
+    protected boolean isMatch(String category, TokenCursor tokens) throws WordsDataSourceException {
         checkCategoriesSupported(category);
-        double matchProbability = classify(category, input);
+        double matchProbability = classify(category, tokens);
         return matchProbability >= cutoff;
     }
 
-    protected double classify(String category, String[] words) throws WordsDataSourceException {
-        List<WordProbability> wps = calculateWordProbabilities(category, words);
+    protected double classify(String category, TokenCursor tokens) throws WordsDataSourceException {
+        List<WordProbability> wps = calculateWordProbabilities(category, tokens);
         return normalizeSignificance(calculateOverallProbability(wps));
     }
 
-    protected void teachMatch(String category, String[] words) throws WordsDataSourceException {
+    private void teach(String category, TokenCursor tokens, boolean match) throws WordsDataSourceException {
         boolean categorized = isCategorized();
-
-        for (String word : words) {
-            if (isClassifiableWord(word)) {
+        while (tokens.next()) {
+            String word = toWord(tokens);
+            if (word != null) {
                 if (categorized) {
-                    ((ICategorisedWordsDataSource) wordsData).addMatch(category, transformWord(word));
+                    if (match) {
+                        ((ICategorisedWordsDataSource) wordsData).addMatch(category, word);
+                    } else {
+                        ((ICategorisedWordsDataSource) wordsData).addNonMatch(category, word);
+                    }
+                } else if (match) {
+                    wordsData.addMatch(word);
                 } else {
-                    wordsData.addMatch(transformWord(word));
+                    wordsData.addNonMatch(word);
                 }
             }
         }
     }
 
-    protected void teachNonMatch(String category, String[] words) throws WordsDataSourceException {
-        boolean categorized = isCategorized();
-        for (String word : words) {
-            if (isClassifiableWord(word)) {
-                if (categorized) {
-                    ((ICategorisedWordsDataSource) wordsData).addNonMatch(category, transformWord(word));
-                } else {
-                    wordsData.addNonMatch(transformWord(word));
-                }
-            }
+    /**
+     * @return the word to teach or look up for the current token, or null if the token is not classified
+     */
+    private String toWord(TokenCursor tokens) {
+        if (analyzed) {
+            return tokens.length() == 0 ? null : tokens.toString();
         }
+        String word = tokens.toString();
+        return isClassifiableWord(word) ? transformWord(word) : null;
+    }
+
+    /**
+     * @return the key to look up the tokens with, or null if they have to be copied into Strings
+     */
+    private TokenKey newTokenKey() {
+        return lookupTokenKeys && (analyzed || isTokenKeyLookupEnabled()) ? new TokenKey() : null;
+    }
+
+    /**
+     * Tells if the tokens may be looked up in place, lower cased character by character when the
+     * classifier is case insensitive, instead of being passed to {@link #transformWord(String)}.
+     * Subclasses which override transformWord must override this method to return false.
+     * The terms of an analysis chain are never transformed and are always looked up in place.
+     *
+     * @return true, tokens are looked up in place when the data source supports it
+     */
+    protected boolean isTokenKeyLookupEnabled() {
+        return true;
     }
 
     private boolean isCategorized() {
@@ -274,33 +458,67 @@ public class BayesianClassifier extends AbstractCategorizedTrainableClassifier {
         }
     }
 
-    private List<WordProbability> calculateWordProbabilities(String category, String[] words) throws WordsDataSourceException {
+    private List<WordProbability> calculateWordProbabilities(String category, TokenCursor tokens) throws WordsDataSourceException {
         if (category == null) {
             throw new IllegalArgumentException("category cannont be null");
         }
         boolean categorized = isCategorized();
         checkCategoriesSupported(category);
-        if (words == null) {
-            return Collections.emptyList();
+        if (wordsData instanceof ShardedWordsDataSource) {
+            return calculateShardedWordProbabilities(category, tokens);
         } else {
-            List<WordProbability> wps = new ArrayList<>(words.length);
-            for (String word : words) {
-                if (isClassifiableWord(word)) {
-                    final WordProbability wp;
-                    if (categorized) {
-                        wp = ((ICategorisedWordsDataSource) wordsData).getWordProbability(category, transformWord(word));
-                    } else {
-                        wp = wordsData.getWordProbability(transformWord(word));
-                    }
-                    if (wp != null) {
-                        wps.add(wp);
-                    }
+            List<WordProbability> wps = new ArrayList<>();
+            TokenKey key = newTokenKey();
+            while (tokens.next()) {
+                WordProbability wp = getWordProbability(category, tokens, key, categorized);
+                if (wp != null) {
+                    wps.add(wp);
                 }
             }
             return wps;
         }
     }
 
+    /**
+     * @return the probability of the current token, or null if it is not classified or not found
+     */
+    private WordProbability getWordProbability(String category, TokenCursor tokens, TokenKey key, boolean categorized) throws WordsDataSourceException {
+        if (key != null && key.set(tokens, !analyzed && !isCaseSensitive)) {
+            // the token is checked and looked up without being copied into a String
+            if (tokens.length() == 0 || (!analyzed && ((ICharSequenceStopWordProvider) stopWordProvider).isStopWord(tokens))) {
+                return null;
+            }
+            return ((ITokenLookupWordsDataSource) wordsData).getWordProbability(category, key);
+        }
+        String word = toWord(tokens);
+        if (word == null) {
+            return null;
+        }
+        if (categorized) {
+            return ((ICategorisedWordsDataSource) wordsData).getWordProbability(category, word);
+        }
+        return wordsData.getWordProbability(word);
+    }
+
+    private List<WordProbability> calculateShardedWordProbabilities(String category, TokenCursor tokens) throws WordsDataSourceException {
+        List<String> classifiableWords = new ArrayList<>();
+        while (tokens.next()) {
+            String word = toWord(tokens);
+            if (word != null) {
+                classifiableWords.add(word);
+            }
+        }
+        // the shards are queried in parallel rather than word by word
+        WordProbability[] found = ((ShardedWordsDataSource) wordsData).getWordProbabilities(category, classifiableWords.toArray(new String[classifiableWords.size()]));
+        List<WordProbability> wps = new ArrayList<>(found.length);
+        for (WordProbability wp : found) {
+            if (wp != null) {
+                wps.add(wp);
+            }
+        }
+        return wps;
+    }
+
     private void checkCategoriesSupported(String category) {
         // if the category is not the default
         // and the data source does not support categories
@@ -54,11 +54,10 @@ package net.sf.classifier4j7.model;
 import net.sf.classifier4j7.ICategorisedClassifier;
 import net.sf.classifier4j7.IClassifier;
 import net.sf.classifier4j7.bayesian.BayesianClassifier;
-import net.sf.classifier4j7.util.CompareToBuilder;
-import net.sf.classifier4j7.util.EqualsBuilder;
-import net.sf.classifier4j7.util.HashCodeBuilder;
 import net.sf.classifier4j7.util.ToStringBuilder;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -69,27 +68,33 @@ import java.io.Serializable;
  * <li>Define the matching and non-matching counts for the particular word.
  * This class then calculates the probability for you.</li>
  * </ol>
+ * <p>
+ * Instances are kept small since data sources hold millions of them: categories
+ * are interned, counts are stored as ints until they overflow, and the
+ * probability is calculated from the counts when asked for. equals, hashCode
+ * and compareTo allocate nothing and the hash code is cached.
  *
  * @author Nick Lothian
  * @author Peter Leschev
  */
 public class WordProbability implements Comparable, Serializable {
+    private static final long serialVersionUID = 1L;
 
     private static final int UNDEFINED = -1;
 
     private String word = "";
     private String category = ICategorisedClassifier.DEFAULT_CATEGORY;
 
-    private long matchingCount;
-    private long nonMatchingCount;
+    private int matchingCount;
+    private int nonMatchingCount;
 
-    private boolean changed;
+    // the counts which do not fit in an int, or a probability set directly, null otherwise
+    private Detail detail;
 
-    private double probability = IClassifier.NEUTRAL_PROBABILITY;
+    // 0 until calculated
+    private transient int hash;
 
     public WordProbability() {
-        setMatchingCount(0);
-        setNonMatchingCount(0);
     }
 
     public WordProbability(String w) {
@@ -116,89 +121,99 @@ public class WordProbability implements Comparable, Serializable {
 
     public void setWord(String w) {
         this.word = w;
+        this.hash = 0;
     }
 
     public void setCategory(String category) {
-        this.category = category;
+        this.category = category == null ? null : category.intern();
+        this.hash = 0;
     }
 
     public void setProbability(double probability) {
-        this.probability = probability;
         this.matchingCount = UNDEFINED;
         this.nonMatchingCount = UNDEFINED;
+        this.detail = new Detail(UNDEFINED, UNDEFINED, probability);
     }
 
     public void setMatchingCount(long matchingCount) {
         if (matchingCount < 0) {
             throw new IllegalArgumentException("matchingCount must be greater than 0");
         }
-        this.matchingCount = matchingCount;
-        calculateProbability();
+        setCounts(matchingCount, getNonMatchingCount());
     }
 
     public void setNonMatchingCount(long nonMatchingCount) {
         if (nonMatchingCount < 0) {
             throw new IllegalArgumentException("nonMatchingCount must be greater than 0");
         }
-        this.nonMatchingCount = nonMatchingCount;
-        calculateProbability();
+        setCounts(getMatchingCount(), nonMatchingCount);
     }
 
     public void incrementMatchingCount() {
-        matchingCount++;
-        changed = true;
+        if (detail == null && matchingCount < Integer.MAX_VALUE) {
+            matchingCount++;
+        } else {
+            setCounts(getMatchingCount() + 1, getNonMatchingCount());
+        }
     }
 
     public void incrementNonMatchingCount() {
-        nonMatchingCount++;
-        changed = true;
+        if (detail == null && nonMatchingCount < Integer.MAX_VALUE) {
+            nonMatchingCount++;
+        } else {
+            setCounts(getMatchingCount(), getNonMatchingCount() + 1);
+        }
     }
 
     public void registerMatch() {
-        if (matchingCount == Long.MAX_VALUE) {
+        if (getMatchingCount() == Long.MAX_VALUE) {
             throw new UnsupportedOperationException("Long.MAX_VALUE reached, can't register more matches");
         }
         incrementMatchingCount();
-        calculateProbability();
     }
 
     public void registerNonMatch() {
-        if (nonMatchingCount == Long.MAX_VALUE) {
+        if (getNonMatchingCount() == Long.MAX_VALUE) {
             throw new UnsupportedOperationException("Long.MAX_VALUE reached, can't register more matches");
         }
         incrementNonMatchingCount();
-        calculateProbability();
     }
 
+    private void setCounts(long matchingCount, long nonMatchingCount) {
+        if (matchingCount >= UNDEFINED && matchingCount <= Integer.MAX_VALUE
+                && nonMatchingCount >= UNDEFINED && nonMatchingCount <= Integer.MAX_VALUE) {
+            this.matchingCount = (int) matchingCount;
+            this.nonMatchingCount = (int) nonMatchingCount;
+            this.detail = null;
+        } else {
+            this.detail = new Detail(matchingCount, nonMatchingCount, Double.NaN);
+        }
+    }
 
-    private void calculateProbability() {
-        final double result;
+    private static double calculateProbability(long matchingCount, long nonMatchingCount) {
         if (matchingCount == 0) {
-            result = nonMatchingCount == 0 ? IClassifier.NEUTRAL_PROBABILITY : IClassifier.LOWER_BOUND;
-        } else {
-            final double significance = (double) matchingCount / (double) (matchingCount + nonMatchingCount);
-            result = BayesianClassifier.normalizeSignificance(significance);
+            return nonMatchingCount == 0 ? IClassifier.NEUTRAL_PROBABILITY : IClassifier.LOWER_BOUND;
         }
-        changed = false;
-        probability = result;
+        final double significance = (double) matchingCount / (double) (matchingCount + nonMatchingCount);
+        return BayesianClassifier.normalizeSignificance(significance);
     }
 
     /**
-     * @return
+     * @return the probability set, or else the probability calculated from the counts
      */
     public double getProbability() {
-        if(changed){
-            calculateProbability();
+        if (detail != null && !Double.isNaN(detail.probability)) {
+            return detail.probability;
         }
-        return probability;
+        return calculateProbability(getMatchingCount(), getNonMatchingCount());
     }
 
     public long getMatchingCount() {
-        return matchingCount;
+        return detail == null ? matchingCount : detail.matchingCount;
     }
 
     public long getNonMatchingCount() {
-        return nonMatchingCount;
+        return detail == null ? nonMatchingCount : detail.nonMatchingCount;
     }
 
     public String getWord() {
@@ -210,11 +225,15 @@ public class WordProbability implements Comparable, Serializable {
     }
 
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (!(o instanceof WordProbability)) {
             return false;
         }
         WordProbability rhs = (WordProbability) o;
-        return new EqualsBuilder().append(getWord(), rhs.getWord()).append(getCategory(), rhs.getCategory()).isEquals();
+        // categories are interned
+        return category == rhs.category && (word == null ? rhs.word == null : word.equals(rhs.word));
     }
 
     public int compareTo(java.lang.Object o) {
@@ -222,16 +241,54 @@ public class WordProbability implements Comparable, Serializable {
             throw new ClassCastException(o.getClass() + " is not a " + this.getClass());
         }
         WordProbability rhs = (WordProbability) o;
-        return new CompareToBuilder().append(this.getCategory(), rhs.getCategory()).append(this.getWord(), rhs.getWord()).toComparison();
+        int comparison = compare(category, rhs.category);
+        return comparison != 0 ? comparison : compare(word, rhs.word);
+    }
+
+    private static int compare(String lhs, String rhs) {
+        if (lhs == rhs) {
+            return 0;
+        }
+        if (lhs == null) {
+            return -1;
+        }
+        if (rhs == null) {
+            return 1;
+        }
+        return lhs.compareTo(rhs);
     }
 
     public String toString() {
-        return new ToStringBuilder(this).append("word", word).append("category", category).append("probability", probability).append("matchingCount", matchingCount).append("nonMatchingCount", nonMatchingCount).toString();
+        return new ToStringBuilder(this).append("word", word).append("category", category).append("probability", getProbability()).append("matchingCount", getMatchingCount()).append("nonMatchingCount", getNonMatchingCount()).toString();
     }
 
     public int hashCode() {
-        // you pick a hard-coded, randomly chosen, non-zero, odd number
-        // ideally different for each class
-        return new HashCodeBuilder(17, 37).append(word).append(category).toHashCode();
+        int h = hash;
+        if (h == 0) {
+            // same value as the HashCodeBuilder(17, 37) previously used
+            h = (17 * 37 + (word == null ? 0 : word.hashCode())) * 37 + (category == null ? 0 : category.hashCode());
+            hash = h;
+        }
+        return h;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        setCategory(category);
+    }
+
+    private static final class Detail implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long matchingCount;
+        private final long nonMatchingCount;
+        // NaN when the probability is calculated from the counts
+        private final double probability;
+
+        Detail(long matchingCount, long nonMatchingCount, double probability) {
+            this.matchingCount = matchingCount;
+            this.nonMatchingCount = nonMatchingCount;
+            this.probability = probability;
+        }
     }
 }
@@ -0,0 +1,167 @@
+package net.sf.classifier4j7.stopword;
+
+import net.sf.classifier4j7.util.ToStringBuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * <p>Stop words compiled into a character trie, checked in time proportional to the length of the
+ * word whatever the number of stop words.</p>
+ *
+ * <p>The trie is laid out breadth first in flat arrays: the children of a state are consecutive states,
+ * and their characters are sorted so that each character of the word is found by a binary search among
+ * the children of the current state. Nothing is allocated by a check, and a slice of a CharSequence,
+ * such as a token, is checked without copying it.</p>
+ *
+ * <p>When case insensitive, the stop words and the checked words are lower cased character by character
+ * with {@link Character#toLowerCase(char)}, independently of the default locale.</p>
+ */
+public class CompiledStopWordProvider implements ICharSequenceStopWordProvider {
+    private final String[] stopWords;
+    private final boolean caseInsensitive;
+    // the characters of the children of state s are labels[firstChild[s]] to labels[firstChild[s + 1] - 1],
+    // the state reached by labels[i] is i + 1
+    private final char[] labels;
+    private final int[] firstChild;
+    private final boolean[] accepting;
+    private final int maxLength;
+
+    /**
+     * @param stopWords       the stop words, null elements are skipped
+     * @param caseInsensitive true to match the words whatever their case
+     */
+    public CompiledStopWordProvider(String[] stopWords, boolean caseInsensitive) {
+        if (stopWords == null) {
+            throw new IllegalArgumentException("stopWords cannot be null");
+        }
+        this.caseInsensitive = caseInsensitive;
+        List<String> words = new ArrayList<>(stopWords.length);
+        for (String word : stopWords) {
+            if (word != null) {
+                words.add(caseInsensitive ? fold(word) : word);
+            }
+        }
+        String[] sorted = words.toArray(new String[words.size()]);
+        Arrays.sort(sorted);
+        this.stopWords = sorted;
+
+        // a state is a range of the sorted words sharing a prefix, the depth is the length of the prefix
+        int stateCount = 1;
+        int maxLength = 0;
+        List<Integer> firstChildren = new ArrayList<>();
+        StringBuilder labelBuilder = new StringBuilder();
+        List<Boolean> acceptingStates = new ArrayList<>();
+        Deque<int[]> states = new ArrayDeque<>();
+        states.add(new int[]{0, sorted.length, 0});
+        while (!states.isEmpty()) {
+            int[] state = states.poll();
+            int low = state[0];
+            int high = state[1];
+            int depth = state[2];
+            firstChildren.add(labelBuilder.length());
+            // the word equal to the prefix sorts first
+            boolean isAccepting = low < high && sorted[low].length() == depth;
+            acceptingStates.add(isAccepting);
+            while (low < high && sorted[low].length() == depth) {
+                maxLength = Math.max(maxLength, depth);
+                low++;
+            }
+            while (low < high) {
+                char c = sorted[low].charAt(depth);
+                int childHigh = low + 1;
+                while (childHigh < high && sorted[childHigh].charAt(depth) == c) {
+                    childHigh++;
+                }
+                labelBuilder.append(c);
+                states.add(new int[]{low, childHigh, depth + 1});
+                stateCount++;
+                low = childHigh;
+            }
+        }
+        firstChildren.add(labelBuilder.length());
+
+        this.maxLength = maxLength;
+        this.labels = labelBuilder.toString().toCharArray();
+        this.firstChild = new int[stateCount + 1];
+        this.accepting = new boolean[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            firstChild[i] = firstChildren.get(i);
+            accepting[i] = acceptingStates.get(i);
+        }
+        firstChild[stateCount] = firstChildren.get(stateCount);
+    }
+
+    /**
+     * @see IStopWordProvider#isStopWord(java.lang.String)
+     */
+    public boolean isStopWord(String word) {
+        return word != null && isStopWord(word, 0, word.length());
+    }
+
+    /**
+     * @see ICharSequenceStopWordProvider#isStopWord(java.lang.CharSequence)
+     */
+    public boolean isStopWord(CharSequence word) {
+        return word != null && isStopWord(word, 0, word.length());
+    }
+
+    /**
+     * @return true if the characters of the text between start and end are a stop word
+     */
+    public boolean isStopWord(CharSequence text, int start, int end) {
+        if (end - start > maxLength) {
+            return false;
+        }
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            char c = caseInsensitive ? Character.toLowerCase(text.charAt(i)) : text.charAt(i);
+            int low = firstChild[state];
+            int high = firstChild[state + 1] - 1;
+            state = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = labels[middle];
+                if (label < c) {
+                    low = middle + 1;
+                } else if (label > c) {
+                    high = middle - 1;
+                } else {
+                    state = middle + 1;
+                    break;
+                }
+            }
+            if (state < 0) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    /**
+     * @return the sorted stop words, lower cased when case insensitive
+     */
+    @Override
+    public String[] getStopWords() {
+        return stopWords.clone();
+    }
+
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    private static String fold(String word) {
+        char[] chars = word.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    public String toString() {
+        return new ToStringBuilder(this).append("stopWords.size()", stopWords.length).append("states", accepting.length).toString();
+    }
+}
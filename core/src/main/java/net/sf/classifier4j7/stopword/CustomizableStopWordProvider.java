@@ -59,10 +59,11 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 
-public class CustomizableStopWordProvider implements IStopWordProvider {
+public class CustomizableStopWordProvider implements ICharSequenceStopWordProvider {
 
     private Resource resource;
     private String[] words;
+    private CompiledStopWordProvider compiledStopWords;
 
     public static final String DEFAULT_STOPWORD_PROVIDER_RESOURCENAME = "defaultStopWords.txt";
 
@@ -90,13 +91,21 @@ public class CustomizableStopWordProvider implements IStopWordProvider {
         reader.close();
         words = wordsLst.toArray(new String[wordsLst.size()]);
         Arrays.sort(words);
+        compiledStopWords = new CompiledStopWordProvider(words, false);
     }
 
     /**
      * @see IStopWordProvider#isStopWord(java.lang.String)
      */
     public boolean isStopWord(String word) {
-        return (Arrays.binarySearch(words, word) >= 0);
+        return compiledStopWords.isStopWord(word);
+    }
+
+    /**
+     * @see ICharSequenceStopWordProvider#isStopWord(java.lang.CharSequence)
+     */
+    public boolean isStopWord(CharSequence word) {
+        return compiledStopWords.isStopWord(word);
     }
 
     @Override
@@ -60,20 +60,23 @@ import java.util.Arrays;
  * @author Nick Lothian
  * @author Peter Leschev
  */
-public class DefaultStopWordsProvider implements IStopWordProvider {
+public class DefaultStopWordsProvider implements ICharSequenceStopWordProvider {
     // This array is sorted in the constructor
     private String[] stopWords = {"a", "and", "the", "me", "i", "of", "if", "it", "is", "they", "there", "but", "or", "to", "this", "you", "in", "your", "on", "for", "as", "are", "that", "with", "have", "be", "at", "or", "was", "so", "out", "not", "an"};
     private String[] sortedStopWords = null;
+    private final CompiledStopWordProvider compiledStopWords;
 
     public DefaultStopWordsProvider() {
         sortedStopWords = getStopWords();
         Arrays.sort(sortedStopWords);
+        compiledStopWords = new CompiledStopWordProvider(sortedStopWords, true);
     }
 
     /**
      * getter method which can be overridden to
      * supply the stop words. The array returned by this
-     * method is sorted and then used internally
+     * method is sorted and then compiled, the words are
+     * matched whatever their case
      *
      * @return the array of stop words
      */
@@ -85,7 +88,14 @@ public class DefaultStopWordsProvider implements IStopWordProvider {
      * @see IStopWordProvider#isStopWord(java.lang.String)
      */
     public boolean isStopWord(String word) {
-        return word == null || "".equals(word) ? false : (Arrays.binarySearch(sortedStopWords, word.toLowerCase()) >= 0);
+        return word == null || "".equals(word) ? false : compiledStopWords.isStopWord(word);
+    }
+
+    /**
+     * @see ICharSequenceStopWordProvider#isStopWord(java.lang.CharSequence)
+     */
+    public boolean isStopWord(CharSequence word) {
+        return word == null || word.length() == 0 ? false : compiledStopWords.isStopWord(word);
     }
 
     public String toString() {
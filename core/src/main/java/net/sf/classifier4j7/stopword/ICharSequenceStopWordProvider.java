@@ -0,0 +1,12 @@
+package net.sf.classifier4j7.stopword;
+
+/**
+ * A stop word provider which can check words which are not Strings, such as tokens, without copying them.
+ */
+public interface ICharSequenceStopWordProvider extends IStopWordProvider {
+
+    /**
+     * @return the same as <code>isStopWord(word.toString())</code>
+     */
+    boolean isStopWord(CharSequence word);
+}
@@ -0,0 +1,193 @@
+package net.sf.classifier4j7.tokenizer;
+
+import net.sf.classifier4j7.stopword.DefaultStopWordsProvider;
+import net.sf.classifier4j7.stopword.ICharSequenceStopWordProvider;
+import net.sf.classifier4j7.stopword.IStopWordProvider;
+import net.sf.classifier4j7.util.ToStringBuilder;
+
+/**
+ * <p>Turns a text into the terms of a classifier in a single pass: tokenizing, case folding, stop word
+ * filtering and optional word n-grams.</p>
+ *
+ * <p>Each token of the tokenizer is folded to lower case while it is copied into a buffer, the folded
+ * term is checked against the stop words, and the terms which are kept are returned, followed by the
+ * n-grams of up to <code>ngramLength</code> terms ending with them, joined by spaces. Empty tokens are
+ * skipped. Unlike {@link NGramTokenizer}, each n-gram is returned once per occurrence.</p>
+ *
+ * <p>The cursor and its buffers are reused by each thread: a cursor returned by {@link #tokens(CharSequence)}
+ * is only valid until the next call of tokens on the same thread, and it lets go of the input once
+ * exhausted. The classifiers given an analysis
+ * chain use its terms as they are, without filtering or transforming them again.</p>
+ */
+public class AnalysisChain implements IStreamingTokenizer {
+    private final ITokenizer tokenizer;
+    private final boolean caseFolding;
+    private final IStopWordProvider stopWordProvider;
+    private final int ngramLength;
+    // the cursors do not refer to the chain, so that the entries of a dropped chain can be cleared
+    private final ThreadLocal<ChainCursor> cursors = new ThreadLocal<>();
+
+    /**
+     * A chain splitting by word, folding case and filtering the default stop words, without n-grams
+     */
+    public AnalysisChain() {
+        this(new DefaultTokenizer(), true, new DefaultStopWordsProvider(), 1);
+    }
+
+    /**
+     * @param tokenizer        the tokenizer splitting the text
+     * @param caseFolding      true to lower case the tokens
+     * @param stopWordProvider the stop words to filter out, checked after case folding, or null to keep all the terms
+     * @param ngramLength      the maximum number of terms of the n-grams, 1 for no n-grams
+     */
+    public AnalysisChain(ITokenizer tokenizer, boolean caseFolding, IStopWordProvider stopWordProvider, int ngramLength) {
+        if (tokenizer == null) {
+            throw new IllegalArgumentException("tokenizer cannot be null");
+        }
+        if (ngramLength <= 0) {
+            throw new IllegalArgumentException("ngramLength must be greater than 0");
+        }
+        this.tokenizer = tokenizer;
+        this.caseFolding = caseFolding;
+        this.stopWordProvider = stopWordProvider;
+        this.ngramLength = ngramLength;
+    }
+
+    public String[] tokenize(String input) {
+        return tokens(input).toArray();
+    }
+
+    /**
+     * @return the cursor of the current thread, over the terms of the input
+     * @see IStreamingTokenizer#tokens(java.lang.CharSequence)
+     */
+    public TokenCursor tokens(CharSequence input) {
+        ChainCursor cursor = cursors.get();
+        if (cursor == null) {
+            cursor = new ChainCursor(caseFolding, stopWordProvider, ngramLength);
+            cursors.set(cursor);
+        }
+        cursor.reset(TokenCursor.of(tokenizer, input));
+        return cursor;
+    }
+
+    public ITokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    public boolean isCaseFolding() {
+        return caseFolding;
+    }
+
+    public IStopWordProvider getStopWordProvider() {
+        return stopWordProvider;
+    }
+
+    public int getNgramLength() {
+        return ngramLength;
+    }
+
+    public String toString() {
+        return new ToStringBuilder(this).append("tokenizer", tokenizer).append("caseFolding", caseFolding).append("stopWordProvider", stopWordProvider).append("ngramLength", ngramLength).toString();
+    }
+
+    private static final class ChainCursor extends TokenCursor {
+        private final boolean caseFolding;
+        private final IStopWordProvider stopWordProvider;
+        private final int ngramLength;
+        // null once exhausted, so that the input is not kept by the thread
+        private TokenCursor tokens;
+        private final StringBuilder term = new StringBuilder();
+        // copies of the last ngramLength terms, and the n-gram being returned
+        private final StringBuilder[] window;
+        private final StringBuilder ngram = new StringBuilder();
+        private int count;
+        private int nextNgramLength;
+
+        ChainCursor(boolean caseFolding, IStopWordProvider stopWordProvider, int ngramLength) {
+            this.caseFolding = caseFolding;
+            this.stopWordProvider = stopWordProvider;
+            this.ngramLength = ngramLength;
+            this.window = new StringBuilder[ngramLength];
+            for (int i = 0; i < window.length; i++) {
+                window[i] = new StringBuilder();
+            }
+        }
+
+        void reset(TokenCursor tokens) {
+            this.tokens = tokens;
+            this.count = 0;
+            this.nextNgramLength = 0;
+        }
+
+        @Override
+        public boolean next() {
+            if (nextNgramLength > 1 && nextNgramLength <= Math.min(count, ngramLength)) {
+                ngram.setLength(0);
+                for (int i = count - nextNgramLength; i < count; i++) {
+                    if (ngram.length() > 0) {
+                        ngram.append(' ');
+                    }
+                    ngram.append(window[i % ngramLength]);
+                }
+                nextNgramLength++;
+                return current(ngram);
+            }
+            if (!nextTerm()) {
+                return false;
+            }
+            if (ngramLength > 1) {
+                StringBuilder slot = window[count % ngramLength];
+                slot.setLength(0);
+                slot.append(term);
+                count++;
+                nextNgramLength = 2;
+            }
+            return current(term);
+        }
+
+        private boolean current(StringBuilder buffer) {
+            text = buffer;
+            start = 0;
+            end = buffer.length();
+            return true;
+        }
+
+        private boolean nextTerm() {
+            if (tokens == null) {
+                return false;
+            }
+            while (tokens.next()) {
+                if (tokens.length() == 0) {
+                    continue;
+                }
+                term.setLength(0);
+                CharSequence token = tokens.text();
+                if (!caseFolding) {
+                    term.append(token, tokens.start(), tokens.end());
+                } else if (TokenKey.canLowerCase(token, tokens.start(), tokens.end())) {
+                    for (int i = tokens.start(); i < tokens.end(); i++) {
+                        term.append(TokenKey.lowerCase(token.charAt(i)));
+                    }
+                } else {
+                    term.append(tokens.toString().toLowerCase());
+                }
+                if (!isStopWord()) {
+                    return true;
+                }
+            }
+            tokens = null;
+            return false;
+        }
+
+        private boolean isStopWord() {
+            if (stopWordProvider == null) {
+                return false;
+            }
+            if (stopWordProvider instanceof ICharSequenceStopWordProvider) {
+                return ((ICharSequenceStopWordProvider) stopWordProvider).isStopWord(term);
+            }
+            return stopWordProvider.isStopWord(term.toString());
+        }
+    }
+}
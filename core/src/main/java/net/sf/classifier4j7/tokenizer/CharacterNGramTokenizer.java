@@ -0,0 +1,163 @@
+package net.sf.classifier4j7.tokenizer;
+
+/**
+ * <p>Splits the words of the input into their character n-grams, or shingles, of
+ * <code>minLength</code> to <code>maxLength</code> characters. For example, with a length of 3 and
+ * padding, "John" gives " Jo", "Joh", "ohn" and "hn ".</p>
+ *
+ * <p>The words are the tokens of a base tokenizer. With padding, each word is surrounded by a space
+ * so that the shingles at its start and end are distinct from those in its middle. A word shorter
+ * than <code>minLength</code>, padding included, gives no shingle. Shingles are returned once per
+ * occurrence, ordered by position then length.</p>
+ *
+ * <p>The shingles are streamed from {@link #tokens(CharSequence)} as slices of the input, or of a
+ * buffer holding the padded word. {@link #hashShingles(CharSequence, int[])} returns int hashes of
+ * the shingles instead, for data sources keyed by int, without creating any String.</p>
+ */
+public class CharacterNGramTokenizer implements IStreamingTokenizer {
+    private static final char PADDING = ' ';
+
+    private final int minLength;
+    private final int maxLength;
+    private final boolean padding;
+    private final ITokenizer baseTokenizer;
+
+    public CharacterNGramTokenizer(int length) {
+        this(length, length, true);
+    }
+
+    public CharacterNGramTokenizer(int minLength, int maxLength, boolean padding) {
+        this(minLength, maxLength, padding, new DefaultTokenizer());
+    }
+
+    /**
+     * @param minLength     the length of the shortest shingles
+     * @param maxLength     the length of the longest shingles
+     * @param padding       true to surround each word by a space
+     * @param baseTokenizer the tokenizer splitting the input into words
+     */
+    public CharacterNGramTokenizer(int minLength, int maxLength, boolean padding, ITokenizer baseTokenizer) {
+        if (minLength <= 0) {
+            throw new IllegalArgumentException("minLength must be greater than 0");
+        }
+        if (maxLength < minLength) {
+            throw new IllegalArgumentException("maxLength cannot be less than minLength");
+        }
+        if (baseTokenizer == null) {
+            throw new IllegalArgumentException("baseTokenizer cannot be null");
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.padding = padding;
+        this.baseTokenizer = baseTokenizer;
+    }
+
+    public String[] tokenize(String input) {
+        return tokens(input).toArray();
+    }
+
+    /**
+     * @see IStreamingTokenizer#tokens(java.lang.CharSequence)
+     */
+    public TokenCursor tokens(CharSequence input) {
+        return new ShingleCursor(TokenCursor.of(baseTokenizer, input));
+    }
+
+    /**
+     * Hashes the shingles of the input, in the order of {@link #tokens(CharSequence)}
+     *
+     * @param hashes the array receiving the hashes
+     * @return the number of shingles, which may be greater than the length of the array; only the hashes
+     * of the first shingles are then written
+     */
+    public int hashShingles(CharSequence input, int[] hashes) {
+        TokenCursor shingles = tokens(input);
+        int count = 0;
+        while (shingles.next()) {
+            if (count < hashes.length) {
+                hashes[count] = hash(shingles.text(), shingles.start(), shingles.end());
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * A Murmur3-style hash: each character is mixed as a block of its own, so the values differ from
+     * MurmurHash3 of the UTF-16 bytes of the shingle.
+     *
+     * @return the hash {@link #hashShingles(CharSequence, int[])} gives to a shingle
+     */
+    public static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            int k = text.charAt(i) * 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15) * 0x1b873593;
+            h = Integer.rotateLeft(h ^ k, 13) * 5 + 0xe6546b64;
+        }
+        h ^= end - start;
+        h = (h ^ (h >>> 16)) * 0x85ebca6b;
+        h = (h ^ (h >>> 13)) * 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public boolean isPadding() {
+        return padding;
+    }
+
+    private final class ShingleCursor extends TokenCursor {
+        private final TokenCursor words;
+        private final StringBuilder paddedWord = new StringBuilder();
+        // the bounds of the current word in text, the start and length of the next shingle
+        private boolean inWord;
+        private int wordEnd;
+        private int position;
+        private int length;
+
+        ShingleCursor(TokenCursor words) {
+            this.words = words;
+        }
+
+        @Override
+        public boolean next() {
+            while (true) {
+                if (inWord) {
+                    while (position + minLength <= wordEnd) {
+                        if (length <= maxLength && position + length <= wordEnd) {
+                            start = position;
+                            end = position + length;
+                            length++;
+                            return true;
+                        }
+                        position++;
+                        length = minLength;
+                    }
+                }
+                if (!words.next()) {
+                    return false;
+                }
+                if (padding) {
+                    paddedWord.setLength(0);
+                    paddedWord.append(PADDING).append(words.text(), words.start(), words.end()).append(PADDING);
+                    text = paddedWord;
+                    position = 0;
+                    wordEnd = paddedWord.length();
+                } else {
+                    text = words.text();
+                    position = words.start();
+                    wordEnd = words.end();
+                }
+                inWord = words.length() > 0;
+                length = minLength;
+            }
+        }
+    }
+}
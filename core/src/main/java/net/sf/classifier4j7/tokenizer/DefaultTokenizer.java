@@ -52,10 +52,21 @@ package net.sf.classifier4j7.tokenizer;
 
 import net.sf.classifier4j7.util.ToStringBuilder;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
+ * <p>Splits on non-word characters or on whitespace, returning the same tokens as
+ * {@link String#split(String)} with the regexp of the {@link TokenizerMethod}: leading and inner
+ * empty tokens are kept, trailing ones are dropped.</p>
+ *
+ * <p>The two methods are implemented by scanning the characters, without the regex engine, and
+ * stream their tokens from {@link #tokens(CharSequence)} without copying them, or from UTF-8 bytes
+ * with {@link #tokens(ByteBuffer)}. Any other method falls back to its precompiled pattern.</p>
+ *
  * @author Peter Leschev
  */
-public class DefaultTokenizer implements ITokenizer {
+public class DefaultTokenizer implements IStreamingTokenizer {
 
     private TokenizerMethod tokenizerMethod;
 
@@ -85,7 +96,71 @@ public class DefaultTokenizer implements ITokenizer {
     }
 
     public String[] tokenize(String input) {
-        return (input != null) ? input.split(tokenizerMethod.getRegexp()) : new String[0];
+        return input == null ? new String[0] : cursor(input).toArray();
+    }
+
+    /**
+     * @see IStreamingTokenizer#tokens(java.lang.CharSequence)
+     */
+    public TokenCursor tokens(CharSequence input) {
+        return cursor(input);
+    }
+
+    /**
+     * Tokenizes UTF-8 bytes without decoding them to a String: the bytes are scanned for the separators
+     * and only the current token is decoded, into a reused buffer. The tokens are those of the decoded
+     * text. The position and limit of the buffer are not changed.
+     *
+     * @param input the bytes between the position and the limit of the buffer
+     */
+    public TokenCursor tokens(ByteBuffer input) {
+        if (input == null) {
+            return TokenCursor.of(null);
+        }
+        switch (tokenizerMethod) {
+            case SPLIT_BY_WORD:
+                return new Utf8TokenCursor(input, true);
+            case SPLIT_ON_WHITESPACE:
+                return new Utf8TokenCursor(input, false);
+            default:
+                return cursor(StandardCharsets.UTF_8.decode(input.duplicate()));
+        }
+    }
+
+    /**
+     * @see #tokens(java.nio.ByteBuffer)
+     */
+    public TokenCursor tokens(byte[] input, int offset, int length) {
+        return tokens(ByteBuffer.wrap(input, offset, length));
+    }
+
+    // not overridable, subclasses preprocessing the input call it from both tokenize and tokens
+    private TokenCursor cursor(CharSequence input) {
+        if (input == null) {
+            return TokenCursor.of(null);
+        }
+        switch (tokenizerMethod) {
+            case SPLIT_BY_WORD:
+                return new SplitCursor(input, true);
+            case SPLIT_ON_WHITESPACE:
+                return new SplitCursor(input, false);
+            default:
+                return TokenCursor.of(tokenizerMethod.getPattern().split(input));
+        }
+    }
+
+    /**
+     * @return true if the character is in [a-zA-Z_0-9], as \w without UNICODE_CHARACTER_CLASS
+     */
+    static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * @return true if the character is in [ \t\n\x0B\f\r], as \s
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     public String toString() {
@@ -97,4 +172,50 @@ public class DefaultTokenizer implements ITokenizer {
         }
         return toStringBuilder.toString();
     }
+
+    private static final class SplitCursor extends TokenCursor {
+        private final boolean byWord;
+        // the end of the last token, the tokens after it are the trailing empty ones
+        private final int limit;
+        // the start of the next token, -1 after the last one
+        private int position;
+
+        SplitCursor(CharSequence input, boolean byWord) {
+            this.text = input;
+            this.byWord = byWord;
+            int last = input.length();
+            while (last > 0 && isSeparator(input.charAt(last - 1))) {
+                last--;
+            }
+            this.limit = last;
+            // String.split returns the input when nothing matches, even when it is empty
+            this.position = limit == 0 && input.length() > 0 ? -1 : 0;
+        }
+
+        @Override
+        public boolean next() {
+            if (position < 0) {
+                return false;
+            }
+            int i = position;
+            while (i < limit && !isSeparator(text.charAt(i))) {
+                i++;
+            }
+            start = position;
+            end = i;
+            if (end >= limit) {
+                position = -1;
+            } else if (byWord && Character.isHighSurrogate(text.charAt(i)) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // \W matches a whole code point, so a surrogate pair is a single separator
+                position = i + 2;
+            } else {
+                position = i + 1;
+            }
+            return true;
+        }
+
+        private boolean isSeparator(char c) {
+            return byWord ? !isWordCharacter(c) : isWhitespace(c);
+        }
+    }
 }
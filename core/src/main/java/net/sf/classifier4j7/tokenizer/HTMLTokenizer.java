@@ -0,0 +1,376 @@
+package net.sf.classifier4j7.tokenizer;
+
+import net.sf.classifier4j7.util.ToStringBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * <p>Tokenizes the text of an HTML document which would be displayed by a browser, in a single pass
+ * over the document.</p>
+ *
+ * <p>Tags are skipped, as well as comments and the content of the script and style elements. Tags end
+ * the current token, except for the inline ones such as &lt;b&gt; or &lt;span&gt;. The common named
+ * entities and numeric character references are decoded as they are read, other entities are
+ * read as a space. Tokens are then split like {@link DefaultTokenizer} does with the same
+ * {@link TokenizerMethod}, except that empty tokens are not returned.</p>
+ *
+ * <p>Documents can be read from a CharSequence or from a Reader, which is read in chunks and not
+ * closed. The tokens are streamed from a buffer, they are only copied into Strings by
+ * {@link #tokenize(String)} or when the caller asks for them.</p>
+ *
+ * @see net.sf.classifier4j7.SimpleHTMLTokenizer
+ */
+public class HTMLTokenizer implements IStreamingTokenizer {
+    private static final int MAX_ENTITY_LENGTH = 10;
+    private static final int MAX_TAG_NAME_LENGTH = 8;
+    private static final int READER_BUFFER_SIZE = 8192;
+
+    private static final String[] ENTITY_NAMES = {"amp", "lt", "gt", "quot", "apos", "nbsp", "copy", "reg",
+            "hellip", "ndash", "mdash", "lsquo", "rsquo", "ldquo", "rdquo"};
+    // nbsp is read as a space, so that it splits tokens on whitespace too
+    private static final char[] ENTITY_VALUES = {'&', '<', '>', '"', '\'', ' ', '\u00A9', '\u00AE',
+            '\u2026', '\u2013', '\u2014', '\u2018', '\u2019', '\u201C', '\u201D'};
+
+    private static final String[] INLINE_TAGS = {"a", "abbr", "b", "big", "code", "em", "font", "i", "mark",
+            "s", "small", "span", "strong", "sub", "sup", "tt", "u"};
+
+    private TokenizerMethod tokenizerMethod;
+
+    /**
+     * Constructor that using the BREAK_ON_WORD_BREAKS tokenizer config by default
+     */
+    public HTMLTokenizer() {
+        this(TokenizerMethod.SPLIT_BY_WORD);
+    }
+
+    public HTMLTokenizer(TokenizerMethod tokenizerMethod) {
+        setTokenizerMethod(tokenizerMethod);
+    }
+
+    public TokenizerMethod getTokenizerMethod() {
+        return tokenizerMethod;
+    }
+
+    public void setTokenizerMethod(TokenizerMethod tokenizerMethod) {
+        this.tokenizerMethod = tokenizerMethod;
+    }
+
+    public String[] tokenize(String input) {
+        return input == null ? new String[0] : tokens(input).toArray();
+    }
+
+    /**
+     * @see IStreamingTokenizer#tokens(java.lang.CharSequence)
+     */
+    public TokenCursor tokens(final CharSequence input) {
+        if (input == null) {
+            return TokenCursor.of(null);
+        }
+        return new HTMLCursor(tokenizerMethod == TokenizerMethod.SPLIT_BY_WORD) {
+            private int position;
+
+            @Override
+            int readSource() {
+                return position < input.length() ? input.charAt(position++) : -1;
+            }
+        };
+    }
+
+    /**
+     * @param reader the document, read up to its end by the cursor; an IOException while reading is
+     *               thrown as an IllegalStateException
+     */
+    public TokenCursor tokens(final Reader reader) {
+        return new HTMLCursor(tokenizerMethod == TokenizerMethod.SPLIT_BY_WORD) {
+            private final char[] chars = new char[READER_BUFFER_SIZE];
+            private int position;
+            private int limit;
+
+            @Override
+            int readSource() {
+                if (position == limit) {
+                    try {
+                        limit = reader.read(chars);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return -1;
+                    }
+                }
+                return chars[position++];
+            }
+        };
+    }
+
+    public String toString() {
+        return new ToStringBuilder(this).append("tokenizerMethod", tokenizerMethod).toString();
+    }
+
+    private abstract static class HTMLCursor extends TokenCursor {
+        private static final int TEXT = 0;
+        private static final int INLINE = 1;
+        private static final int SEPARATOR = 2;
+
+        private final boolean byWord;
+        private final StringBuilder token = new StringBuilder();
+        // characters read ahead and put back, the last one is read first
+        private final int[] pushedBack = new int[MAX_ENTITY_LENGTH + 2];
+        private int pushedBackCount;
+        private final char[] name = new char[Math.max(MAX_ENTITY_LENGTH, MAX_TAG_NAME_LENGTH)];
+
+        HTMLCursor(boolean byWord) {
+            this.byWord = byWord;
+            this.text = token;
+        }
+
+        /**
+         * @return the next character of the document, or -1 at its end
+         */
+        abstract int readSource();
+
+        @Override
+        public boolean next() {
+            token.setLength(0);
+            while (true) {
+                int c = read();
+                if (c < 0) {
+                    return endToken();
+                }
+                if (c == '<') {
+                    int markup = readMarkup();
+                    if (markup == INLINE) {
+                        continue;
+                    }
+                    if (markup == SEPARATOR) {
+                        if (token.length() > 0) {
+                            return endToken();
+                        }
+                        continue;
+                    }
+                } else if (c == '&') {
+                    c = readEntity();
+                }
+                if (isTokenCharacter(c)) {
+                    token.appendCodePoint(c);
+                } else if (token.length() > 0) {
+                    return endToken();
+                }
+            }
+        }
+
+        private boolean endToken() {
+            start = 0;
+            end = token.length();
+            return end > 0;
+        }
+
+        private boolean isTokenCharacter(int c) {
+            if (c >= 0x80) {
+                return !byWord;
+            }
+            return byWord ? DefaultTokenizer.isWordCharacter((char) c) : !DefaultTokenizer.isWhitespace((char) c);
+        }
+
+        private int read() {
+            return pushedBackCount > 0 ? pushedBack[--pushedBackCount] : readSource();
+        }
+
+        private void pushBack(int c) {
+            if (c >= 0) {
+                pushedBack[pushedBackCount++] = c;
+            }
+        }
+
+        /**
+         * Skips the markup after a '&lt;'
+         *
+         * @return TEXT if the '&lt;' does not start markup, INLINE if the markup does not end the
+         * current token, SEPARATOR otherwise
+         */
+        private int readMarkup() {
+            int c = read();
+            if (c == '!') {
+                int c2 = read();
+                if (c2 == '-') {
+                    int c3 = read();
+                    if (c3 == '-') {
+                        skipComment();
+                        return INLINE;
+                    }
+                    pushBack(c3);
+                }
+                pushBack(c2);
+                skipTag();
+                return INLINE;
+            }
+            if (c == '?') {
+                skipTag();
+                return INLINE;
+            }
+            boolean closing = c == '/';
+            if (closing) {
+                c = read();
+            }
+            if (!isLetter(c)) {
+                // a '<' in the text, such as "a < b"
+                pushBack(c);
+                if (closing) {
+                    pushBack('/');
+                }
+                return TEXT;
+            }
+            int nameLength = 0;
+            while (isLetter(c) || (c >= '0' && c <= '9')) {
+                if (nameLength < MAX_TAG_NAME_LENGTH) {
+                    name[nameLength] = TokenKey.lowerCase((char) c);
+                }
+                nameLength++;
+                c = read();
+            }
+            pushBack(c);
+            boolean selfClosing = skipTag();
+            if (!closing && !selfClosing && (isName(nameLength, "script") || isName(nameLength, "style"))) {
+                skipRawText(nameLength);
+                return SEPARATOR;
+            }
+            for (String inline : INLINE_TAGS) {
+                if (isName(nameLength, inline)) {
+                    return INLINE;
+                }
+            }
+            return SEPARATOR;
+        }
+
+        /**
+         * Skips to the end of a tag, ignoring the '&gt;' in quoted attribute values
+         *
+         * @return true if the tag ends with "/&gt;"
+         */
+        private boolean skipTag() {
+            int quote = 0;
+            int previous = 0;
+            int c;
+            while ((c = read()) >= 0) {
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return previous == '/';
+                }
+                previous = c;
+            }
+            return false;
+        }
+
+        private void skipComment() {
+            int dashes = 0;
+            int c;
+            while ((c = read()) >= 0) {
+                if (c == '>' && dashes >= 2) {
+                    return;
+                }
+                dashes = c == '-' ? dashes + 1 : 0;
+            }
+        }
+
+        /**
+         * Skips the content of a script or style element, up to its closing tag
+         */
+        private void skipRawText(int nameLength) {
+            int c;
+            while ((c = read()) >= 0) {
+                if (c != '<') {
+                    continue;
+                }
+                c = read();
+                if (c != '/') {
+                    pushBack(c);
+                    continue;
+                }
+                int matched = 0;
+                while (matched < nameLength) {
+                    c = read();
+                    if (c < 0 || TokenKey.lowerCase((char) c) != name[matched]) {
+                        break;
+                    }
+                    matched++;
+                }
+                if (matched == nameLength) {
+                    skipTag();
+                    return;
+                }
+                pushBack(c);
+            }
+        }
+
+        /**
+         * Reads an entity after a '&amp;'
+         *
+         * @return the character of the entity, a space if it is unknown, or '&amp;' if there is no entity
+         * and the characters read are to be read again as text
+         */
+        private int readEntity() {
+            int nameLength = 0;
+            int c = read();
+            while (nameLength < MAX_ENTITY_LENGTH && (isLetter(c) || (c >= '0' && c <= '9') || (c == '#' && nameLength == 0))) {
+                name[nameLength++] = (char) c;
+                c = read();
+            }
+            if (c != ';' || nameLength == 0) {
+                pushBack(c);
+                for (int i = nameLength - 1; i >= 0; i--) {
+                    pushBack(name[i]);
+                }
+                return '&';
+            }
+            if (name[0] == '#') {
+                return decodeNumericEntity(nameLength);
+            }
+            for (int i = 0; i < ENTITY_NAMES.length; i++) {
+                if (isName(nameLength, ENTITY_NAMES[i])) {
+                    return ENTITY_VALUES[i];
+                }
+            }
+            return ' ';
+        }
+
+        private int decodeNumericEntity(int nameLength) {
+            boolean hex = nameLength > 1 && (name[1] == 'x' || name[1] == 'X');
+            int codePoint = 0;
+            for (int i = hex ? 2 : 1; i < nameLength; i++) {
+                int digit = Character.digit(name[i], hex ? 16 : 10);
+                if (digit < 0 || codePoint > Character.MAX_CODE_POINT) {
+                    return ' ';
+                }
+                codePoint = codePoint * (hex ? 16 : 10) + digit;
+            }
+            if (codePoint == 0 || codePoint > Character.MAX_CODE_POINT || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+                return ' ';
+            }
+            return codePoint;
+        }
+
+        private boolean isName(int nameLength, String expected) {
+            if (nameLength != expected.length()) {
+                return false;
+            }
+            for (int i = 0; i < nameLength; i++) {
+                if (name[i] != expected.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isLetter(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+    }
+}
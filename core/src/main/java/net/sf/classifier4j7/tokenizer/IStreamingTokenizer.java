@@ -0,0 +1,16 @@
+package net.sf.classifier4j7.tokenizer;
+
+/**
+ * <p>A tokenizer which can stream its tokens instead of returning them all in an array.</p>
+ *
+ * <p>Tokenizers which only implement {@link ITokenizer} are streamed from the array they return,
+ * see {@link TokenCursor#of(ITokenizer, CharSequence)}.</p>
+ */
+public interface IStreamingTokenizer extends ITokenizer {
+
+    /**
+     * @param input the text to tokenize, may be null
+     * @return a cursor over the tokens {@link #tokenize(String)} would return, in the same order
+     */
+    TokenCursor tokens(CharSequence input);
+}
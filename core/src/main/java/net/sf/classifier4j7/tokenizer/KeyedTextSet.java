@@ -0,0 +1,60 @@
+package net.sf.classifier4j7.tokenizer;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * A set of texts looked up by a 64 bits hash computed by the caller. The texts are copied into a single
+ * buffer, and a text is compared character by character with those of the same key, so that two
+ * different texts whose keys collide are both kept.
+ */
+final class KeyedTextSet {
+    // text i is texts[starts[i], starts[i + 1]), previous[i] is the text added before it with the same key or -1
+    private final StringBuilder texts = new StringBuilder();
+    private final LongIntHashMap last = new LongIntHashMap();
+    private int[] starts = new int[17];
+    private int[] previous = new int[16];
+    private int size;
+
+    /**
+     * @param key  the hash of the text
+     * @param text the text, copied if it is added
+     * @return true if the text was not in the set
+     */
+    boolean add(long key, CharSequence text) {
+        // the map returns 0 for a missing key, the texts are stored plus 1
+        int first = last.get(key) - 1;
+        for (int i = first; i >= 0; i = previous[i]) {
+            if (equals(i, text)) {
+                return false;
+            }
+        }
+        if (size == previous.length) {
+            previous = Arrays.copyOf(previous, size * 2);
+            starts = Arrays.copyOf(starts, size * 2 + 1);
+        }
+        texts.append(text);
+        previous[size] = first;
+        starts[++size] = texts.length();
+        last.put(key, size);
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean equals(int index, CharSequence text) {
+        int offset = starts[index];
+        if (starts[index + 1] - offset != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (texts.charAt(offset + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
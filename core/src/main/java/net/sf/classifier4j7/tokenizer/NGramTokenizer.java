@@ -4,9 +4,18 @@ package net.sf.classifier4j7.tokenizer;
 import net.sf.classifier4j7.stopword.DefaultStopWordsProvider;
 import net.sf.classifier4j7.stopword.IStopWordProvider;
 
-import java.util.*;
+/**
+ * <p>Returns the tokens of more than one character of a base tokenizer, and the n-grams of up to
+ * <code>ngramLength</code> of these tokens joined by spaces, each of them once.</p>
+ *
+ * <p>The n-grams are streamed from {@link #tokens(CharSequence)}: each one is identified by a 64 bits
+ * key combining hashes of its tokens, and written into a buffer reused for each n-gram. The n-grams
+ * already returned are kept in a {@link KeyedTextSet}, so an n-gram is only dropped when its text equals
+ * one of them, never because two keys collide.</p>
+ */
+public class NGramTokenizer implements IStreamingTokenizer {
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
 
-public class NGramTokenizer implements ITokenizer{
     private int ngramLength;
     private ITokenizer baseTokenizer;
     private IStopWordProvider stopWordProvider;
@@ -23,27 +32,102 @@ public class NGramTokenizer implements ITokenizer{
 
     @Override
     public String[] tokenize(String input) {
-        Set<String> tokens = new HashSet<>();
+        return tokens(input).toArray();
+    }
+
+    /**
+     * @see IStreamingTokenizer#tokens(java.lang.CharSequence)
+     */
+    @Override
+    public TokenCursor tokens(CharSequence input) {
+        return new NGramCursor(TokenCursor.of(baseTokenizer, input), Math.max(1, ngramLength));
+    }
+
+    /**
+     * @return a 64 bits hash of the characters of the token, FNV-1a
+     */
+    private static long hash(TokenCursor token) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < token.length(); i++) {
+            h = (h ^ token.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static final class NGramCursor extends TokenCursor {
+        private final TokenCursor baseTokens;
+        private final KeyedTextSet seen = new KeyedTextSet();
+        private final StringBuilder buffer = new StringBuilder();
+
+        // copies of the last ngramLength tokens, in a circular window
+        private final StringBuilder[] texts;
+        private final long[] hashes;
+        private int count;
+
+        // the length of the next n-gram ending with the last token, and the key of the previous one
+        private int length;
+        private long key;
+        private long power;
 
-        final String[] originalTokens = baseTokenizer.tokenize(input);
-        List<String> selectedTokens = new ArrayList<>(originalTokens.length);
-        for(String t: originalTokens){
-            if(t.length() > 1 ) {
-                selectedTokens.add(t);
+        NGramCursor(TokenCursor baseTokens, int ngramLength) {
+            this.baseTokens = baseTokens;
+            this.texts = new StringBuilder[ngramLength];
+            for (int i = 0; i < ngramLength; i++) {
+                texts[i] = new StringBuilder();
+            }
+            this.hashes = new long[ngramLength];
+            this.text = buffer;
+        }
+
+        @Override
+        public boolean next() {
+            while (true) {
+                if (length == 0 || length > Math.min(count, texts.length)) {
+                    if (!nextBaseToken()) {
+                        return false;
+                    }
+                    length = 1;
+                    key = 0;
+                    power = 1;
+                }
+                // the n-gram is extended with the token before it, the key stays order dependent
+                int first = (count - length) % texts.length;
+                key += hashes[first] * power;
+                power *= MULTIPLIER;
+                int ngram = length++;
+                write(ngram);
+                if (seen.add(key * 31 + ngram, buffer)) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean nextBaseToken() {
+            while (baseTokens.next()) {
+                if (baseTokens.length() > 1) {
+                    int slot = count % texts.length;
+                    // the base token is only valid until the next one
+                    texts[slot].setLength(0);
+                    texts[slot].append(baseTokens.text(), baseTokens.start(), baseTokens.end());
+                    hashes[slot] = hash(baseTokens);
+                    count++;
+                    return true;
+                }
             }
+            return false;
         }
 
-        for(int i = 0; i < selectedTokens.size(); i++){
-            final String str = selectedTokens.get(i);
-            tokens.add(str);
-            StringBuilder sb = new StringBuilder(str);
-            for(int j = i+1; j < i + ngramLength; j++){
-                if(j < selectedTokens.size()){
-                    sb.append(" ").append(selectedTokens.get(j));
-                    tokens.add(sb.toString());
+        private void write(int ngram) {
+            buffer.setLength(0);
+            for (int i = count - ngram; i < count; i++) {
+                int slot = i % texts.length;
+                if (buffer.length() > 0) {
+                    buffer.append(' ');
                 }
+                buffer.append(texts[slot]);
             }
+            start = 0;
+            end = buffer.length();
         }
-        return tokens.toArray(new String[tokens.size()]);
     }
 }
@@ -0,0 +1,79 @@
+package net.sf.classifier4j7.tokenizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * <p>Tokenizes a Reader in chunks of a bounded buffer.</p>
+ *
+ * <p>Each chunk ends after the last whitespace of the buffer, so that tokens are not split, and the
+ * characters after it are moved to the start of the buffer before it is filled again. A token longer
+ * than the buffer is split. Tokenizers which keep state across tokens, such as n-grams, restart with
+ * each chunk.</p>
+ */
+final class ReaderTokenCursor extends TokenCursor {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ITokenizer tokenizer;
+    private final Reader reader;
+    private final char[] buffer;
+    private int length;
+    private int chunkLength;
+    private boolean endOfInput;
+    private TokenCursor chunkTokens;
+
+    ReaderTokenCursor(ITokenizer tokenizer, Reader reader, int bufferSize) {
+        this.tokenizer = tokenizer;
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * @throws IllegalStateException with the IOException as its cause if the Reader fails
+     */
+    @Override
+    public boolean next() {
+        while (chunkTokens == null || !chunkTokens.next()) {
+            if (!nextChunk()) {
+                return false;
+            }
+        }
+        text = chunkTokens.text();
+        start = chunkTokens.start();
+        end = chunkTokens.end();
+        return true;
+    }
+
+    private boolean nextChunk() {
+        System.arraycopy(buffer, chunkLength, buffer, 0, length - chunkLength);
+        length -= chunkLength;
+        try {
+            while (!endOfInput && length < buffer.length) {
+                int read = reader.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    endOfInput = true;
+                } else {
+                    length += read;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        if (length == 0) {
+            return false;
+        }
+        chunkLength = length;
+        if (!endOfInput) {
+            int i = length - 1;
+            while (i >= 0 && !DefaultTokenizer.isWhitespace(buffer[i])) {
+                i--;
+            }
+            if (i >= 0) {
+                chunkLength = i + 1;
+            }
+        }
+        chunkTokens = TokenCursor.of(tokenizer, CharBuffer.wrap(buffer, 0, chunkLength));
+        return true;
+    }
+}
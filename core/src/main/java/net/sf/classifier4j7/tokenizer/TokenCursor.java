@@ -0,0 +1,153 @@
+package net.sf.classifier4j7.tokenizer;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A cursor over the tokens of an input.</p>
+ *
+ * <p>The cursor is itself the current token: a view of the characters of {@link #text()} between
+ * {@link #start()} and {@link #end()}, valid until the next call to {@link #next()}. A token is only
+ * copied into a String when {@link #toString()} is called.</p>
+ *
+ * <p>For example:<br>
+ * <tt>
+ * TokenCursor tokens = TokenCursor.of(tokenizer, input);<br>
+ * while (tokens.next()) {<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;String word = tokens.toString();<br>
+ * }
+ * </tt>
+ * </p>
+ */
+public abstract class TokenCursor implements CharSequence {
+    private static final String[] NO_TOKENS = new String[0];
+
+    protected CharSequence text = "";
+    protected int start;
+    protected int end;
+
+    /**
+     * @return the tokens of the tokenizer, streamed if it is an {@link IStreamingTokenizer}
+     */
+    public static TokenCursor of(ITokenizer tokenizer, CharSequence input) {
+        if (tokenizer instanceof IStreamingTokenizer) {
+            return ((IStreamingTokenizer) tokenizer).tokens(input);
+        }
+        return of(tokenizer.tokenize(input == null ? null : input.toString()));
+    }
+
+    /**
+     * Tokenizes a Reader incrementally, with a buffer of 64K characters. The Reader is not closed.
+     * An IOException while reading is thrown by {@link #next()} as the cause of an IllegalStateException.
+     * {@link HTMLTokenizer} reads the Reader itself, other tokenizers are given chunks of the buffer
+     * ending with a whitespace, so that tokens are not split.
+     */
+    public static TokenCursor of(ITokenizer tokenizer, Reader reader) {
+        if (tokenizer instanceof HTMLTokenizer) {
+            return ((HTMLTokenizer) tokenizer).tokens(reader);
+        }
+        return new ReaderTokenCursor(tokenizer, reader, ReaderTokenCursor.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Tokenizes UTF-8 bytes, between the position and the limit of the buffer. A {@link DefaultTokenizer}
+     * reads the bytes itself, other tokenizers are given the decoded text.
+     */
+    public static TokenCursor of(ITokenizer tokenizer, ByteBuffer input) {
+        if (tokenizer instanceof DefaultTokenizer) {
+            return ((DefaultTokenizer) tokenizer).tokens(input);
+        }
+        return of(tokenizer, input == null ? null : StandardCharsets.UTF_8.decode(input.duplicate()));
+    }
+
+    /**
+     * @param tokens the tokens, null elements are skipped
+     */
+    public static TokenCursor of(String[] tokens) {
+        return new ArrayTokenCursor(tokens == null ? NO_TOKENS : tokens);
+    }
+
+    /**
+     * Moves to the next token
+     *
+     * @return false if there are no more tokens
+     */
+    public abstract boolean next();
+
+    /**
+     * @return the text the current token is in
+     */
+    public CharSequence text() {
+        return text;
+    }
+
+    /**
+     * @return the index of the first character of the current token in {@link #text()}
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return the index after the last character of the current token in {@link #text()}
+     */
+    public int end() {
+        return end;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public char charAt(int index) {
+        return text.charAt(start + index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(this.start + start, this.start + end);
+    }
+
+    /**
+     * @return a copy of the current token
+     */
+    public String toString() {
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * @return a copy of the remaining tokens
+     */
+    public String[] toArray() {
+        List<String> tokens = new ArrayList<>();
+        while (next()) {
+            tokens.add(toString());
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    private static final class ArrayTokenCursor extends TokenCursor {
+        private final String[] tokens;
+        private int index;
+
+        ArrayTokenCursor(String[] tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public boolean next() {
+            while (index < tokens.length) {
+                String token = tokens[index++];
+                if (token != null) {
+                    text = token;
+                    start = 0;
+                    end = token.length();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.sf.classifier4j7.tokenizer;
+
+import java.util.Locale;
+
+/**
+ * <p>A token used as a key without copying it into a String.</p>
+ *
+ * <p>The key is a view of the characters of a token, optionally lower cased, with the hash code a
+ * String of the same characters would have, computed when the key is set. It equals any String or
+ * TokenKey of the same characters. Since Map.get calls the equals method of the key passed to it,
+ * <code>map.get(key)</code> finds the same entry as <code>map.get(key.toString())</code> in a map
+ * keyed by Strings.</p>
+ *
+ * <p>String.equals is false for a key, so a key may only be used as a lookup probe: it must never be
+ * stored in a collection of Strings, nor compared to one with the String on the left.</p>
+ *
+ * <p>Lower casing is done character by character, which is what String.toLowerCase does for ASCII
+ * characters outside of the Turkish and Azeri locales. {@link #set(TokenCursor, boolean)} refuses the
+ * tokens which cannot be lower cased that way, their String has to be used instead.</p>
+ */
+public final class TokenKey implements CharSequence {
+    private CharSequence text = "";
+    private int start;
+    private int length;
+    private boolean lowerCase;
+    private int hash;
+
+    /**
+     * @return false if the token cannot be lower cased character by character, the key is then unchanged
+     */
+    public boolean set(CharSequence text, int start, int end, boolean lowerCase) {
+        if (lowerCase && !canLowerCase(text, start, end)) {
+            return false;
+        }
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + (lowerCase ? lowerCase(text.charAt(i)) : text.charAt(i));
+        }
+        this.text = text;
+        this.start = start;
+        this.length = end - start;
+        this.lowerCase = lowerCase;
+        this.hash = h;
+        return true;
+    }
+
+    /**
+     * Sets the key to the current token of the cursor
+     *
+     * @see #set(CharSequence, int, int, boolean)
+     */
+    public boolean set(TokenCursor token, boolean lowerCase) {
+        return set(token.text(), token.start(), token.end(), lowerCase);
+    }
+
+    /**
+     * @return true if String.toLowerCase gives the same result as lower casing each character
+     */
+    public static boolean canLowerCase(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || (c == 'I' && hasDotlessI())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the lower case of an ASCII character
+     */
+    public static char lowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean hasDotlessI() {
+        String language = Locale.getDefault().getLanguage();
+        return "tr".equals(language) || "az".equals(language);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        char c = text.charAt(start + index);
+        return lowerCase ? lowerCase(c) : c;
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof String) && !(o instanceof TokenKey)) {
+            return false;
+        }
+        CharSequence other = (CharSequence) o;
+        if (other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return a copy of the characters of the key
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = charAt(i);
+        }
+        return new String(chars);
+    }
+}
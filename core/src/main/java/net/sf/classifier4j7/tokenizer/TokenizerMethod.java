@@ -1,5 +1,7 @@
 package net.sf.classifier4j7.tokenizer;
 
+import java.util.regex.Pattern;
+
 public enum TokenizerMethod {
     /**
      * Use a the "\W" (non-word characters) regexp to split the string passed to classify
@@ -12,12 +14,21 @@ public enum TokenizerMethod {
     SPLIT_ON_WHITESPACE("\\s");
 
     private String regexp;
+    private Pattern pattern;
 
     TokenizerMethod(String regexp){
         this.regexp = regexp;
+        this.pattern = Pattern.compile(regexp);
     }
 
     public String getRegexp(){
         return regexp;
     }
+
+    /**
+     * @return the regexp, compiled once
+     */
+    public Pattern getPattern(){
+        return pattern;
+    }
 }
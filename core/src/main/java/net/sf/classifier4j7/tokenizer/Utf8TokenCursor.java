@@ -0,0 +1,158 @@
+package net.sf.classifier4j7.tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>Splits UTF-8 bytes on non-word characters or on whitespace, as {@link DefaultTokenizer} splits
+ * the decoded text.</p>
+ *
+ * <p>The separators of both methods are ASCII, so the bytes are scanned without decoding them: only
+ * the bytes of the current token are decoded, into a buffer reused from token to token. ASCII bytes
+ * are copied as they are. A multi-byte sequence is a single separator when splitting on non-word
+ * characters, as its code point is matched once by \W. Malformed sequences are decoded as U+FFFD.</p>
+ */
+final class Utf8TokenCursor extends TokenCursor {
+    private static final char REPLACEMENT = '\uFFFD';
+
+    // read with absolute indexes, its position and limit are not changed
+    private final ByteBuffer bytes;
+    private final boolean byWord;
+    // the end of the last token, the tokens after it are the trailing empty ones
+    private final int limit;
+    // the start of the next token, -1 after the last one
+    private int position;
+    private char[] chars = new char[32];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+
+    Utf8TokenCursor(ByteBuffer bytes, boolean byWord) {
+        this.bytes = bytes;
+        this.byWord = byWord;
+        int first = bytes.position();
+        int last = bytes.limit();
+        // the bytes of a multi-byte sequence are all separators when splitting by word, and never whitespace
+        while (last > first && isSeparator(bytes.get(last - 1))) {
+            last--;
+        }
+        this.limit = last;
+        // String.split returns the input when nothing matches, even when it is empty
+        this.position = limit == first && bytes.limit() > first ? -1 : first;
+        this.text = charBuffer;
+    }
+
+    @Override
+    public boolean next() {
+        if (position < 0) {
+            return false;
+        }
+        int i = position;
+        end = 0;
+        while (i < limit) {
+            byte b = bytes.get(i);
+            if (b >= 0) {
+                if (isSeparator(b)) {
+                    break;
+                }
+                append((char) b);
+                i++;
+            } else if (byWord) {
+                break;
+            } else {
+                i = decode(i);
+            }
+        }
+        start = 0;
+        if (i >= limit) {
+            position = -1;
+        } else if (byWord && bytes.get(i) < 0) {
+            position = i + Math.abs(sequenceLength(i));
+        } else {
+            position = i + 1;
+        }
+        return true;
+    }
+
+    private boolean isSeparator(byte b) {
+        if (b < 0) {
+            return byWord;
+        }
+        return byWord ? !DefaultTokenizer.isWordCharacter((char) b) : DefaultTokenizer.isWhitespace((char) b);
+    }
+
+    /**
+     * @return the number of bytes of the sequence starting at i, or if it is malformed the opposite of
+     * the number of bytes replaced by a single U+FFFD: the lead byte and the continuation bytes which
+     * could still start a valid sequence, as the JDK decoder does
+     */
+    private int sequenceLength(int i) {
+        int lead = bytes.get(i) & 0xff;
+        int length;
+        // the ranges of the second byte exclude the overlong sequences and the code points above U+10FFFF
+        int min = 0x80;
+        int max = 0xbf;
+        if (lead >= 0xc2 && lead <= 0xdf) {
+            length = 2;
+        } else if (lead >= 0xe0 && lead <= 0xef) {
+            length = 3;
+            if (lead == 0xe0) {
+                min = 0xa0;
+            }
+        } else if (lead >= 0xf0 && lead <= 0xf4) {
+            length = 4;
+            if (lead == 0xf0) {
+                min = 0x90;
+            } else if (lead == 0xf4) {
+                max = 0x8f;
+            }
+        } else {
+            return -1;
+        }
+        for (int j = 1; j < length; j++) {
+            if (i + j >= bytes.limit()) {
+                return -j;
+            }
+            int b = bytes.get(i + j) & 0xff;
+            if (j == 1 ? b < min || b > max : (b & 0xc0) != 0x80) {
+                return -j;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Appends the character of the sequence starting at i
+     *
+     * @return the index after the sequence
+     */
+    private int decode(int i) {
+        int length = sequenceLength(i);
+        if (length < 0) {
+            append(REPLACEMENT);
+            return i - length;
+        }
+        int codePoint = bytes.get(i) & (0xff >>> (length + 1));
+        for (int j = 1; j < length; j++) {
+            codePoint = (codePoint << 6) | (bytes.get(i + j) & 0x3f);
+        }
+        if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+            // an encoded surrogate is replaced as a whole
+            append(REPLACEMENT);
+        } else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            append(Character.highSurrogate(codePoint));
+            append(Character.lowSurrogate(codePoint));
+        } else {
+            append((char) codePoint);
+        }
+        return i + length;
+    }
+
+    private void append(char c) {
+        if (end == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+            charBuffer = CharBuffer.wrap(chars);
+            text = charBuffer;
+        }
+        chars[end++] = c;
+    }
+}
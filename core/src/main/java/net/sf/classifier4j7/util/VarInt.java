@@ -0,0 +1,88 @@
+package net.sf.classifier4j7.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable length encoding of non negative longs, 7 bits per byte with the high bit set
+ * on every byte but the last one. Small values such as word counts take a single byte.
+ */
+public final class VarInt {
+
+    private VarInt() {
+    }
+
+    /**
+     * @return the number of bytes needed to encode value
+     */
+    public static int sizeOf(long value) {
+        checkValue(value);
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes value in buffer starting at offset
+     *
+     * @return the offset following the last written byte
+     */
+    public static int write(long value, byte[] buffer, int offset) {
+        checkValue(value);
+        while ((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Reads the value starting at offset. Use {@link #sizeOf(long)} on the result to find
+     * the offset of the following value.
+     */
+    public static long read(byte[] buffer, int offset) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (offset >= buffer.length) {
+                throw new IOException("Truncated varint");
+            }
+            byte b = buffer[offset++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public static void write(long value, DataOutput out) throws IOException {
+        checkValue(value);
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long read(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void checkValue(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value cannot be negative");
+        }
+    }
+}
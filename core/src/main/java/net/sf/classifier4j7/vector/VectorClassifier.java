@@ -4,6 +4,7 @@ package net.sf.classifier4j7.vector;
 import net.sf.classifier4j7.*;
 import net.sf.classifier4j7.stopword.DefaultStopWordsProvider;
 import net.sf.classifier4j7.stopword.IStopWordProvider;
+import net.sf.classifier4j7.tokenizer.AnalysisChain;
 import net.sf.classifier4j7.tokenizer.DefaultTokenizer;
 import net.sf.classifier4j7.tokenizer.ITokenizer;
 
@@ -17,6 +18,7 @@ public class VectorClassifier extends AbstractCategorizedTrainableClassifier {
     private ITokenizer tokenizer;
     private IStopWordProvider stopWordsProvider;
     private TermVectorStorage storage;
+    private AnalysisChain analysisChain;
 
     public VectorClassifier(TermVectorStorage storage) {
         tokenizer = new DefaultTokenizer();
@@ -25,6 +27,17 @@ public class VectorClassifier extends AbstractCategorizedTrainableClassifier {
         setMatchCutoff(DEFAULT_VECTORCLASSIFIER_CUTOFF);
     }
 
+    /**
+     * @param analysisChain the chain turning the inputs into terms, which are used as they are
+     */
+    public VectorClassifier(TermVectorStorage storage, AnalysisChain analysisChain) {
+        this(storage);
+        if (analysisChain == null) {
+            throw new IllegalArgumentException("analysisChain cannot be null");
+        }
+        this.analysisChain = analysisChain;
+    }
+
     public VectorClassifier() {
         this(new HashMapTermVectorStorage());
     }
@@ -34,7 +47,7 @@ public class VectorClassifier extends AbstractCategorizedTrainableClassifier {
      */
     public double classify(String category, String input) throws ClassifierException {
         // Create a map of the word frequency from the input
-        Map<String, Integer> wordFrequencies = Utilities.getWordFrequency(input, false, tokenizer, stopWordsProvider);
+        Map<String, Integer> wordFrequencies = getWordFrequency(input);
         TermVector tv = storage.getTermVector(category);
         if (tv == null) {
             return 0;
@@ -56,7 +69,7 @@ public class VectorClassifier extends AbstractCategorizedTrainableClassifier {
      */
     public void teachMatch(String category, String input) throws ClassifierException {
         // Create a map of the word frequency from the input
-        Map<String, Integer> wordFrequencies = Utilities.getWordFrequency(input, false, tokenizer, stopWordsProvider);
+        Map<String, Integer> wordFrequencies = getWordFrequency(input);
         
         // get the numTermsInVector most used words in the input
         int numTermsInVector = 25;
@@ -69,6 +82,13 @@ public class VectorClassifier extends AbstractCategorizedTrainableClassifier {
         storage.addTermVector(category, new TermVector(terms, values));
     }
 
+    private Map<String, Integer> getWordFrequency(String input) {
+        if (analysisChain != null) {
+            return Utilities.getWordFrequency(input, analysisChain);
+        }
+        return Utilities.getWordFrequency(input, false, tokenizer, stopWordsProvider);
+    }
+
     /**
      * @param terms
      * @param wordFrequencies
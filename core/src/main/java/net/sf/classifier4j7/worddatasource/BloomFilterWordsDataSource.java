@@ -0,0 +1,225 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Avoids querying a persistent datasource for words it does not contain.</p>
+ *
+ * <p>The categories and words of the datasource are kept in a Bloom filter, loaded from getAll when the
+ * guard is created and updated by addMatch and addNonMatch. A lookup of a word which is not in the
+ * filter returns null without reaching the datasource. The filter is sized for
+ * <code>expectedWords</code>: beyond that its false positive rate grows and lookups of unknown words
+ * reach the datasource more often, but the results are never wrong.</p>
+ *
+ * <p>A counting filter uses a byte per slot instead of a bit, counting the matches and non-matches of
+ * the words of the slot, so that the words removed by removeUnsignificantWordProbabilities can be
+ * removed from the filter instead of rebuilding it. A slot which overflows is never decremented again.</p>
+ */
+public class BloomFilterWordsDataSource implements ICategorisedWordsDataSource {
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final int MAX_COUNTER = 0xff;
+
+    private final ICategorisedWordsDataSource wordsDataSource;
+    private final int slotCount;
+    private final int hashCount;
+    private final boolean counting;
+    private long[] bits;
+    private byte[] counters;
+    private long skippedCount;
+
+    public BloomFilterWordsDataSource(ICategorisedWordsDataSource wordsDataSource, int expectedWords) {
+        this(wordsDataSource, expectedWords, DEFAULT_FALSE_POSITIVE_RATE, false);
+    }
+
+    /**
+     * @param wordsDataSource   the datasource to guard, it must support getAll
+     * @param expectedWords     the number of words the filter is sized for
+     * @param falsePositiveRate the rate of unknown words reaching the datasource once it holds expectedWords
+     * @param counting          true to use a counting filter
+     */
+    public BloomFilterWordsDataSource(ICategorisedWordsDataSource wordsDataSource, int expectedWords, double falsePositiveRate, boolean counting) {
+        if (wordsDataSource == null) {
+            throw new IllegalArgumentException("wordsDataSource cannot be null");
+        }
+        if (expectedWords <= 0) {
+            throw new IllegalArgumentException("expectedWords must be greater than 0");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        this.wordsDataSource = wordsDataSource;
+        double slots = -expectedWords * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.slotCount = (int) Math.min(Integer.MAX_VALUE - 64, Math.max(64, Math.ceil(slots)));
+        this.hashCount = Math.max(1, (int) Math.round(slotCount / (double) expectedWords * Math.log(2)));
+        this.counting = counting;
+        rebuild();
+    }
+
+    /**
+     * Reloads the filter from the words of the datasource
+     */
+    public final synchronized void rebuild() {
+        Collection<WordProbability> wps = wordsDataSource.getAll();
+        if (wps == null) {
+            throw new IllegalArgumentException(wordsDataSource.getClass().getName() + " does not support getAll");
+        }
+        if (counting) {
+            counters = new byte[slotCount];
+        } else {
+            bits = new long[(slotCount + 63) >>> 6];
+        }
+        for (WordProbability wp : wps) {
+            add(WordHash.hash(wp.getCategory(), wp.getWord()), countOf(wp));
+        }
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) throws WordsDataSourceException {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public WordProbability getWordProbability(String category, String word) throws WordsDataSourceException {
+        long hash = WordHash.hash(category, word);
+        synchronized (this) {
+            if (!mightContain(hash)) {
+                skippedCount++;
+                return null;
+            }
+        }
+        return wordsDataSource.getWordProbability(category, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) throws WordsDataSourceException {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) throws WordsDataSourceException {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public void addMatch(String category, String word) throws WordsDataSourceException {
+        addToFilter(category, word);
+        wordsDataSource.addMatch(category, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public void addNonMatch(String category, String word) throws WordsDataSourceException {
+        addToFilter(category, word);
+        wordsDataSource.addNonMatch(category, word);
+    }
+
+    @Override
+    public Collection<WordProbability> getAll() {
+        return wordsDataSource.getAll();
+    }
+
+    @Override
+    public synchronized void removeUnsignificantWordProbabilities() {
+        if (!counting) {
+            wordsDataSource.removeUnsignificantWordProbabilities();
+            rebuild();
+            return;
+        }
+        Map<Long, Integer> before = counts(wordsDataSource.getAll());
+        wordsDataSource.removeUnsignificantWordProbabilities();
+        before.keySet().removeAll(counts(wordsDataSource.getAll()).keySet());
+        for (Map.Entry<Long, Integer> removed : before.entrySet()) {
+            remove(removed.getKey(), removed.getValue());
+        }
+    }
+
+    /**
+     * @return the number of lookups answered without querying the datasource
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public boolean isCounting() {
+        return counting;
+    }
+
+    private Map<Long, Integer> counts(Collection<WordProbability> wps) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (WordProbability wp : wps) {
+            counts.put(WordHash.hash(wp.getCategory(), wp.getWord()), countOf(wp));
+        }
+        return counts;
+    }
+
+    private static int countOf(WordProbability wp) {
+        long count = wp.getMatchingCount() + wp.getNonMatchingCount();
+        return (int) Math.min(MAX_COUNTER, Math.max(1, count));
+    }
+
+    /**
+     * The word is added before the datasource is updated, so that a lookup never misses it
+     */
+    private void addToFilter(String category, String word) {
+        long hash = WordHash.hash(category, word);
+        synchronized (this) {
+            add(hash, 1);
+        }
+    }
+
+    private void add(long hash, int count) {
+        for (int i = 0; i < hashCount; i++) {
+            int slot = slot(hash, i);
+            if (counting) {
+                counters[slot] = (byte) Math.min(MAX_COUNTER, (counters[slot] & 0xff) + count);
+            } else {
+                bits[slot >>> 6] |= 1L << slot;
+            }
+        }
+    }
+
+    private void remove(long hash, int count) {
+        for (int i = 0; i < hashCount; i++) {
+            int slot = slot(hash, i);
+            // a saturated counter has lost its count, it is never decremented
+            int counter = counters[slot] & 0xff;
+            if (counter < MAX_COUNTER) {
+                counters[slot] = (byte) Math.max(0, counter - count);
+            }
+        }
+    }
+
+    private boolean mightContain(long hash) {
+        for (int i = 0; i < hashCount; i++) {
+            int slot = slot(hash, i);
+            if (counting ? counters[slot] == 0 : (bits[slot >>> 6] & (1L << slot)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slot(long hash, int i) {
+        // double hashing: the i-th slot is h1 + i * h2
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return ((h1 + i * h2) & Integer.MAX_VALUE) % slotCount;
+    }
+}
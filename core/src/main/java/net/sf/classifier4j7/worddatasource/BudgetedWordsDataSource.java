@@ -0,0 +1,338 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A datasource keeping its words in memory within a budget in bytes.</p>
+ *
+ * <p>The cost of each word is estimated from the length of the word plus a fixed overhead for the
+ * objects holding it and its counts. When a new word makes the datasource exceed its budget, the
+ * least recently used word is evicted if the new word has been accessed more often recently, otherwise
+ * the new word itself is not admitted (TinyLFU). Access frequencies are approximated by a small
+ * sketch, so that a burst of rare words does not flush the frequent ones. The counters of the sketch are
+ * part of the used bytes: a few percent of the budget, and at least 1 KB, so the budget has to hold
+ * the sketch and one word.</p>
+ *
+ * <p>Without a spill datasource the counts of evicted words are lost, which is fine for a model of
+ * the recent vocabulary. With one, the counts not yet written are added to it on eviction and
+ * reloaded from it when the word is used again; getAll and removeUnsignificantWordProbabilities then
+ * work on the spill datasource, after {@link #flush()}. When the spill datasource is an
+ * {@link ICountingWordsDataSource}, the counts of a word are written with a single call.</p>
+ */
+public class BudgetedWordsDataSource implements ICategorisedWordsDataSource {
+    /**
+     * The estimated bytes used by a word besides its characters: the map entry, the key, the counts
+     * and the String header
+     */
+    public static final int ENTRY_OVERHEAD = 136;
+
+    private static final int EXPECTED_ENTRY_SIZE = ENTRY_OVERHEAD + 16;
+
+    private final long budget;
+    private final ICategorisedWordsDataSource spill;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long usedBytes;
+    private long evictionCount;
+    private long rejectionCount;
+
+    public BudgetedWordsDataSource(long budget) {
+        this(budget, null);
+    }
+
+    /**
+     * @param budget the maximum number of bytes used by the words
+     * @param spill  the datasource receiving the counts of the evicted words, or null to drop them
+     * @throws IllegalArgumentException if the budget cannot hold the frequency sketch and one word
+     */
+    public BudgetedWordsDataSource(long budget, ICategorisedWordsDataSource spill) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget must be greater than 0");
+        }
+        this.budget = budget;
+        this.spill = spill;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, budget / (EXPECTED_ENTRY_SIZE + FrequencySketch.MAX_BYTES_PER_ENTRY)));
+        if (budget < sketch.sizeInBytes() + EXPECTED_ENTRY_SIZE) {
+            throw new IllegalArgumentException("budget must be at least " + (sketch.sizeInBytes() + EXPECTED_ENTRY_SIZE) + " bytes");
+        }
+        this.usedBytes = sketch.sizeInBytes();
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) throws WordsDataSourceException {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public synchronized WordProbability getWordProbability(String category, String word) throws WordsDataSourceException {
+        Key key = new Key(category, word);
+        sketch.increment(key.hash);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (spill == null) {
+                return null;
+            }
+            WordProbability wp = spill.getWordProbability(category, word);
+            if (wp == null) {
+                return null;
+            }
+            entry = new Entry(wp.getMatchingCount(), wp.getNonMatchingCount());
+            admit(key, entry);
+        }
+        WordProbability wp = new WordProbability(word, entry.getMatchingCount(), entry.getNonMatchingCount());
+        wp.setCategory(category);
+        return wp;
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) throws WordsDataSourceException {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) throws WordsDataSourceException {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addMatch(String category, String word) throws WordsDataSourceException {
+        Key key = new Key(category, word);
+        Entry entry = getOrCreate(key);
+        entry.matchingDelta++;
+        if (!entry.admitted) {
+            write(key, entry);
+        }
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addNonMatch(String category, String word) throws WordsDataSourceException {
+        Key key = new Key(category, word);
+        Entry entry = getOrCreate(key);
+        entry.nonMatchingDelta++;
+        if (!entry.admitted) {
+            write(key, entry);
+        }
+    }
+
+    /**
+     * @return a copy of the words in memory, or all the words of the spill datasource if there is one
+     */
+    @Override
+    public synchronized Collection<WordProbability> getAll() {
+        if (spill != null) {
+            flushEntries();
+            return spill.getAll();
+        }
+        List<WordProbability> wps = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            WordProbability wp = new WordProbability(entry.getKey().word, entry.getValue().getMatchingCount(), entry.getValue().getNonMatchingCount());
+            wp.setCategory(entry.getKey().category);
+            wps.add(wp);
+        }
+        return wps;
+    }
+
+    @Override
+    public synchronized void removeUnsignificantWordProbabilities() {
+        if (spill != null) {
+            // the counts in memory would be stale once the spill datasource is pruned
+            flushEntries();
+            spill.removeUnsignificantWordProbabilities();
+            entries.clear();
+            usedBytes = sketch.sizeInBytes();
+            return;
+        }
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            WordProbability wp = new WordProbability(entry.getKey().word, entry.getValue().getMatchingCount(), entry.getValue().getNonMatchingCount());
+            if (PruningPolicy.DEFAULT.isUnsignificant(wp)) {
+                usedBytes -= entry.getKey().cost;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Writes the counts in memory which have not been written yet to the spill datasource
+     */
+    public synchronized void flush() throws WordsDataSourceException {
+        if (spill != null) {
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                write(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the bytes used by the words in memory and the frequency sketch
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of words evicted from memory to make room for more frequent ones
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of times a word was not admitted in memory, being less frequent than the
+     * least recently used word
+     */
+    public synchronized long getRejectionCount() {
+        return rejectionCount;
+    }
+
+    private void flushEntries() {
+        try {
+            flush();
+        } catch (WordsDataSourceException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the entry of the word, which may not have been admitted in memory
+     */
+    private Entry getOrCreate(Key key) throws WordsDataSourceException {
+        sketch.increment(key.hash);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        WordProbability wp = spill == null ? null : spill.getWordProbability(key.category, key.word);
+        entry = wp == null ? new Entry(0, 0) : new Entry(wp.getMatchingCount(), wp.getNonMatchingCount());
+        admit(key, entry);
+        return entry;
+    }
+
+    private void admit(Key key, Entry entry) throws WordsDataSourceException {
+        entry.admitted = true;
+        entries.put(key, entry);
+        usedBytes += key.cost;
+        while (usedBytes > budget) {
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            Map.Entry<Key, Entry> eldest = it.next();
+            if (eldest.getKey() == key || sketch.frequency(key.hash) <= sketch.frequency(eldest.getKey().hash)) {
+                // the new word is not worth more than the ones in memory
+                entries.remove(key);
+                usedBytes -= key.cost;
+                entry.admitted = false;
+                rejectionCount++;
+                return;
+            }
+            it.remove();
+            usedBytes -= eldest.getKey().cost;
+            evictionCount++;
+            write(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void write(Key key, Entry entry) throws WordsDataSourceException {
+        if (spill == null) {
+            return;
+        }
+        if (spill instanceof ICountingWordsDataSource) {
+            if (entry.matchingDelta > 0 || entry.nonMatchingDelta > 0) {
+                ((ICountingWordsDataSource) spill).addCounts(key.category, key.word, entry.matchingDelta, entry.nonMatchingDelta);
+                entry.matchingCount += entry.matchingDelta;
+                entry.nonMatchingCount += entry.nonMatchingDelta;
+                entry.matchingDelta = 0;
+                entry.nonMatchingDelta = 0;
+            }
+            return;
+        }
+        // the other spill datasources can only be incremented one by one
+        for (; entry.matchingDelta > 0; entry.matchingDelta--) {
+            spill.addMatch(key.category, key.word);
+            entry.matchingCount++;
+        }
+        for (; entry.nonMatchingDelta > 0; entry.nonMatchingDelta--) {
+            spill.addNonMatch(key.category, key.word);
+            entry.nonMatchingCount++;
+        }
+    }
+
+    private static final class Key {
+        private final String category;
+        private final String word;
+        private final long hash;
+        private final int cost;
+
+        Key(String category, String word) {
+            this.category = category;
+            this.word = word;
+            this.hash = WordHash.hash(category, word);
+            this.cost = ENTRY_OVERHEAD + 2 * word.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && word.equals(other.word) && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) hash;
+        }
+    }
+
+    /**
+     * The counts already in the spill datasource, and the counts still to be written to it
+     */
+    private static final class Entry {
+        private long matchingCount;
+        private long nonMatchingCount;
+        private long matchingDelta;
+        private long nonMatchingDelta;
+        private boolean admitted;
+
+        Entry(long matchingCount, long nonMatchingCount) {
+            this.matchingCount = matchingCount;
+            this.nonMatchingCount = nonMatchingCount;
+        }
+
+        long getMatchingCount() {
+            return matchingCount + matchingDelta;
+        }
+
+        long getNonMatchingCount() {
+            return nonMatchingCount + nonMatchingDelta;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * <p>A datasource keeping approximate counts in a fixed amount of memory, whatever the number of words.</p>
+ *
+ * <p>The matching and non-matching counts are kept in a Count-Min sketch: <code>depth</code> rows of
+ * <code>width</code> counters, each word being counted in one counter per row chosen by hashing its
+ * category and word. The estimated count of a word is the smallest of its counters, so it is never
+ * lower than the real count, and it is higher by at most <code>e / width</code> times the total of
+ * the counts with a probability of <code>1 - exp(-depth)</code>. With conservative update, only the
+ * smallest counters are incremented, which lowers the overestimates further.</p>
+ *
+ * <p>The words themselves are not stored: getAll returns null and removeUnsignificantWordProbabilities
+ * does nothing. Sketches of the same size and seed can be {@link #merge(CountMinSketchWordsDataSource) merged},
+ * and saved as a flat array with {@link #toArray()}.</p>
+ */
+public class CountMinSketchWordsDataSource implements ICategorisedWordsDataSource, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int HEADER_SIZE = 5;
+    // the seed of the second hash, relative to the seed of the sketch
+    private static final long SECOND_SEED = 0x9e3779b97f4a7c15L;
+
+    private final int width;
+    private final int depth;
+    private final boolean conservativeUpdate;
+    private final long seed;
+    // the matching and non-matching counters of a cell are next to each other
+    private final long[] counters;
+    private long totalCount;
+
+    /**
+     * @param errorBound the maximum overestimate, as a fraction of the total of the counts
+     * @param errorProbability the probability for an estimate to exceed the error bound
+     */
+    public static CountMinSketchWordsDataSource withErrorBound(double errorBound, double errorProbability) {
+        if (errorBound <= 0 || errorBound >= 1 || errorProbability <= 0 || errorProbability >= 1) {
+            throw new IllegalArgumentException("errorBound and errorProbability must be between 0 and 1");
+        }
+        int width = (int) Math.ceil(Math.E / errorBound);
+        int depth = (int) Math.ceil(Math.log(1 / errorProbability));
+        return new CountMinSketchWordsDataSource(width, depth, true);
+    }
+
+    /**
+     * Creates a sketch from an array returned by {@link #toArray()}
+     */
+    public static CountMinSketchWordsDataSource fromArray(long[] array) {
+        if (array.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("array is too short");
+        }
+        CountMinSketchWordsDataSource sketch = new CountMinSketchWordsDataSource((int) array[0], (int) array[1], array[2] != 0, array[4]);
+        if (array.length != HEADER_SIZE + sketch.counters.length) {
+            throw new IllegalArgumentException("array length does not match its width and depth");
+        }
+        sketch.totalCount = array[3];
+        System.arraycopy(array, HEADER_SIZE, sketch.counters, 0, sketch.counters.length);
+        return sketch;
+    }
+
+    public CountMinSketchWordsDataSource(int width, int depth, boolean conservativeUpdate) {
+        this(width, depth, conservativeUpdate, 0);
+    }
+
+    /**
+     * @param seed the seed of the hashes choosing the counters of the words. A secret random seed keeps
+     *             anyone from picking words which share the counters of another word. Only sketches with
+     *             the same seed can be merged.
+     */
+    public CountMinSketchWordsDataSource(int width, int depth, boolean conservativeUpdate, long seed) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("width and depth must be greater than 0");
+        }
+        if ((long) width * depth * 2 > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException("width * depth is too large");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.conservativeUpdate = conservativeUpdate;
+        this.seed = seed;
+        this.counters = new long[width * depth * 2];
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @return the estimated counts of the word, or null if it has never been counted
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public synchronized WordProbability getWordProbability(String category, String word) {
+        long h1 = WordHash.hash(category, word, seed);
+        long h2 = WordHash.hash(category, word, seed ^ SECOND_SEED);
+        long matchingCount = estimate(h1, h2, 0);
+        long nonMatchingCount = estimate(h1, h2, 1);
+        if (matchingCount == 0 && nonMatchingCount == 0) {
+            return null;
+        }
+        WordProbability wp = new WordProbability(word, matchingCount, nonMatchingCount);
+        wp.setCategory(category);
+        return wp;
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addMatch(String category, String word) {
+        increment(WordHash.hash(category, word, seed), WordHash.hash(category, word, seed ^ SECOND_SEED), 0);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addNonMatch(String category, String word) {
+        increment(WordHash.hash(category, word, seed), WordHash.hash(category, word, seed ^ SECOND_SEED), 1);
+    }
+
+    /**
+     * @return null, the words are not stored
+     */
+    @Override
+    public Collection<WordProbability> getAll() {
+        return null;
+    }
+
+    /**
+     * Does nothing, the words are not stored
+     */
+    @Override
+    public void removeUnsignificantWordProbabilities() {
+    }
+
+    /**
+     * Adds the counts of another sketch of the same width, depth and seed to this one
+     */
+    public void merge(CountMinSketchWordsDataSource other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge sketches of different sizes");
+        }
+        if (other.seed != seed) {
+            throw new IllegalArgumentException("Cannot merge sketches of different seeds");
+        }
+        long[] otherCounters;
+        long otherTotalCount;
+        synchronized (other) {
+            otherCounters = other.counters.clone();
+            otherTotalCount = other.totalCount;
+        }
+        synchronized (this) {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] += otherCounters[i];
+            }
+            totalCount += otherTotalCount;
+        }
+    }
+
+    /**
+     * @return the width, depth, update mode, total count, seed and counters of the sketch
+     * @see #fromArray(long[])
+     */
+    public synchronized long[] toArray() {
+        long[] array = new long[HEADER_SIZE + counters.length];
+        array[0] = width;
+        array[1] = depth;
+        array[2] = conservativeUpdate ? 1 : 0;
+        array[3] = totalCount;
+        array[4] = seed;
+        System.arraycopy(counters, 0, array, HEADER_SIZE, counters.length);
+        return array;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isConservativeUpdate() {
+        return conservativeUpdate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of matches and non-matches counted
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the maximum overestimate of a count, with a probability of <code>1 - exp(-depth)</code>
+     */
+    public synchronized double getErrorBound() {
+        return Math.E / width * totalCount;
+    }
+
+    private void increment(long h1, long h2, int type) {
+        totalCount++;
+        if (!conservativeUpdate) {
+            for (int row = 0; row < depth; row++) {
+                counters[index(h1, h2, row, type)]++;
+            }
+            return;
+        }
+        long target = estimate(h1, h2, type) + 1;
+        for (int row = 0; row < depth; row++) {
+            int index = index(h1, h2, row, type);
+            if (counters[index] < target) {
+                counters[index] = target;
+            }
+        }
+    }
+
+    private long estimate(long h1, long h2, int type) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[index(h1, h2, row, type)]);
+        }
+        return min;
+    }
+
+    private int index(long h1, long h2, int row, int type) {
+        // double hashing with two independent 64 bit hashes: the column of each row is h1 + row * h2
+        int column = (int) (((h1 + row * h2) & Long.MAX_VALUE) % width);
+        return ((row * width + column) << 1) + type;
+    }
+}
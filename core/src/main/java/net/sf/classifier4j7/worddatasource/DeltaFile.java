@@ -0,0 +1,171 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.util.VarInt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The format of the delta files written by {@link DeltaRecordingWordsDataSource}: a header with the
+ * sequence number, the count changes and a CRC32 of everything before it.
+ */
+final class DeltaFile {
+    private static final int MAGIC = 0x43344a44;
+    private static final int CHECKPOINT_MAGIC = 0x43344a43;
+    private static final byte VERSION = 1;
+    private static final String PREFIX = "delta-";
+    private static final String SUFFIX = ".bin";
+
+    private DeltaFile() {
+    }
+
+    static File file(File dir, long sequence) {
+        return new File(dir, PREFIX + sequence + SUFFIX);
+    }
+
+    /**
+     * @return the sequence number in the name of the file, or -1 if it is not a delta file
+     */
+    static long sequenceOf(File file) {
+        String name = file.getName();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the file under a temporary name, syncs it and renames it, so that it is never read half written
+     * even after a crash
+     */
+    static void write(File dir, long sequence, List<WordProbability> changes) throws IOException {
+        File tmp = new File(dir, PREFIX + sequence + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream tmpFile = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(tmpFile), crc))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(sequence);
+            VarInt.write(changes.size(), out);
+            for (WordProbability change : changes) {
+                out.writeUTF(change.getCategory());
+                out.writeUTF(change.getWord());
+                VarInt.write(change.getMatchingCount(), out);
+                VarInt.write(change.getNonMatchingCount(), out);
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            tmpFile.getChannel().force(true);
+        }
+        Files.move(tmp.toPath(), file(dir, sequence).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(dir);
+    }
+
+    static Delta read(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException(file + " is not a delta file");
+            }
+            Delta delta = new Delta(in.readLong());
+            long count = VarInt.read(in);
+            for (long i = 0; i < count; i++) {
+                String category = in.readUTF();
+                WordProbability change = new WordProbability(category, in.readUTF());
+                change.setMatchingCount(VarInt.read(in));
+                change.setNonMatchingCount(VarInt.read(in));
+                delta.changes.add(change);
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException(file + " is corrupted");
+            }
+            return delta;
+        }
+    }
+
+    /**
+     * @return the sequence number of the last delta applied recorded in the checkpoint file, 0 if there is none
+     */
+    static long readCheckpoint(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != VERSION) {
+                throw new IOException(file + " is not a checkpoint file");
+            }
+            long sequence = in.readLong();
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException(file + " is corrupted");
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Replaces the checkpoint file with one recording sequence, syncing it to the disk before it is renamed
+     * and the directory after, so that the previous checkpoint survives a crash until the new one is durable
+     */
+    static void writeCheckpoint(File file, long sequence) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream tmpFile = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(tmpFile), crc))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(sequence);
+            out.writeLong(crc.getValue());
+            out.flush();
+            tmpFile.getChannel().force(true);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(file.getAbsoluteFile().getParentFile());
+    }
+
+    private static void syncDirectory(File dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            // directories cannot be opened on some platforms, such as Windows, where renames are durable
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    static final class Delta {
+        final long sequence;
+        final List<WordProbability> changes = new ArrayList<>();
+
+        Delta(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Applies the delta files exported by a {@link DeltaRecordingWordsDataSource} to a replica.</p>
+ *
+ * <p>Deltas must be applied in sequence. A delta already applied is ignored, so shipping the same file
+ * twice is harmless, and a missing delta is reported instead of silently skipped. A delta file is read
+ * and checked entirely before any of its changes is applied.</p>
+ *
+ * <p>When the replica is an {@link ISequencedWordsDataSource}, each delta is applied atomically with its
+ * sequence number, which is read back from the replica on restart, so no delta is ever counted twice.
+ * Otherwise the sequence number of the last delta applied only lives in memory unless a checkpoint file is
+ * given, in which case it is written durably after each delta and read back on restart. The changes of a
+ * delta are then handed to the datasource before its checkpoint is written, so a crash in between
+ * re-applies that single delta.</p>
+ *
+ * <p>The counts of a change are added in one call to {@link ICountingWordsDataSource#addCounts} when the
+ * datasource supports it, instead of one call to addMatch or addNonMatch per occurrence.</p>
+ */
+public class DeltaImporter {
+    private final IWordsDataSource wordsDataSource;
+    private final File checkpointFile;
+    private long lastAppliedSequence;
+
+    /**
+     * @param wordsDataSource the replica, the last delta applied is read from it if it is an {@link ISequencedWordsDataSource}
+     */
+    public DeltaImporter(IWordsDataSource wordsDataSource) throws WordsDataSourceException {
+        this(wordsDataSource, wordsDataSource instanceof ISequencedWordsDataSource
+                ? ((ISequencedWordsDataSource) wordsDataSource).getLastAppliedSequence() : 0);
+    }
+
+    /**
+     * @param wordsDataSource     the replica
+     * @param lastAppliedSequence the sequence number of the last delta applied to the replica, 0 if none
+     */
+    public DeltaImporter(IWordsDataSource wordsDataSource, long lastAppliedSequence) {
+        if (wordsDataSource == null) {
+            throw new IllegalArgumentException("wordsDataSource cannot be null");
+        }
+        if (lastAppliedSequence < 0) {
+            throw new IllegalArgumentException("lastAppliedSequence cannot be negative");
+        }
+        this.wordsDataSource = wordsDataSource;
+        this.checkpointFile = null;
+        this.lastAppliedSequence = lastAppliedSequence;
+    }
+
+    /**
+     * @param wordsDataSource the replica
+     * @param checkpointFile  the file recording the sequence number of the last delta applied to the replica,
+     *                        created by the first delta applied if it does not exist
+     * @throws WordsDataSourceException if the checkpoint file cannot be read
+     */
+    public DeltaImporter(IWordsDataSource wordsDataSource, File checkpointFile) throws WordsDataSourceException {
+        if (wordsDataSource == null) {
+            throw new IllegalArgumentException("wordsDataSource cannot be null");
+        }
+        if (checkpointFile == null) {
+            throw new IllegalArgumentException("checkpointFile cannot be null");
+        }
+        this.wordsDataSource = wordsDataSource;
+        this.checkpointFile = checkpointFile;
+        try {
+            this.lastAppliedSequence = DeltaFile.readCheckpoint(checkpointFile);
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem reading checkpoint " + checkpointFile, e);
+        }
+    }
+
+    /**
+     * @return true if the delta was applied, false if it had already been applied
+     * @throws WordsDataSourceException if the file is corrupted or a previous delta is missing
+     */
+    public synchronized boolean apply(File deltaFile) throws WordsDataSourceException {
+        DeltaFile.Delta delta;
+        try {
+            delta = DeltaFile.read(deltaFile);
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem reading delta " + deltaFile, e);
+        }
+        if (delta.sequence <= lastAppliedSequence) {
+            return false;
+        }
+        if (delta.sequence != lastAppliedSequence + 1) {
+            throw new WordsDataSourceException("Delta " + (lastAppliedSequence + 1) + " is missing, cannot apply delta " + delta.sequence);
+        }
+        if (wordsDataSource instanceof ISequencedWordsDataSource) {
+            ((ISequencedWordsDataSource) wordsDataSource).applyDelta(delta.sequence, delta.changes);
+        } else {
+            for (WordProbability change : delta.changes) {
+                apply(change);
+            }
+        }
+        lastAppliedSequence = delta.sequence;
+        if (checkpointFile != null) {
+            try {
+                DeltaFile.writeCheckpoint(checkpointFile, delta.sequence);
+            } catch (IOException e) {
+                throw new WordsDataSourceException("Problem writing checkpoint " + checkpointFile, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies, in order, the delta files of the directory which have not been applied yet
+     *
+     * @return the number of deltas applied
+     */
+    public synchronized int catchUp(File dir) throws WordsDataSourceException {
+        List<Long> sequences = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                long sequence = DeltaFile.sequenceOf(file);
+                if (sequence > lastAppliedSequence) {
+                    sequences.add(sequence);
+                }
+            }
+        }
+        Collections.sort(sequences);
+        int applied = 0;
+        for (Long sequence : sequences) {
+            if (apply(DeltaFile.file(dir, sequence))) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    public synchronized long getLastAppliedSequence() {
+        return lastAppliedSequence;
+    }
+
+    private void apply(WordProbability change) throws WordsDataSourceException {
+        String category = change.getCategory();
+        String word = change.getWord();
+        if (wordsDataSource instanceof SimpleWordsDataSource) {
+            checkDefaultCategory(category);
+            SimpleWordsDataSource simple = (SimpleWordsDataSource) wordsDataSource;
+            WordProbability wp = simple.getWordProbability(word);
+            if (wp == null) {
+                simple.setWordProbability(new WordProbability(word, change.getMatchingCount(), change.getNonMatchingCount()));
+            } else {
+                wp.setMatchingCount(wp.getMatchingCount() + change.getMatchingCount());
+                wp.setNonMatchingCount(wp.getNonMatchingCount() + change.getNonMatchingCount());
+            }
+            return;
+        }
+        if (wordsDataSource instanceof ICountingWordsDataSource) {
+            ((ICountingWordsDataSource) wordsDataSource).addCounts(category, word, change.getMatchingCount(), change.getNonMatchingCount());
+            return;
+        }
+        // the other datasources can only be incremented one by one
+        boolean categorised = wordsDataSource instanceof ICategorisedWordsDataSource;
+        if (!categorised) {
+            checkDefaultCategory(category);
+        }
+        for (long i = 0; i < change.getMatchingCount(); i++) {
+            if (categorised) {
+                ((ICategorisedWordsDataSource) wordsDataSource).addMatch(category, word);
+            } else {
+                wordsDataSource.addMatch(word);
+            }
+        }
+        for (long i = 0; i < change.getNonMatchingCount(); i++) {
+            if (categorised) {
+                ((ICategorisedWordsDataSource) wordsDataSource).addNonMatch(category, word);
+            } else {
+                wordsDataSource.addNonMatch(word);
+            }
+        }
+    }
+
+    private void checkDefaultCategory(String category) {
+        if (!ICategorisedClassifier.DEFAULT_CATEGORY.equals(category)) {
+            throw new IllegalArgumentException("Word Data Source does not support non-default categories.");
+        }
+    }
+}
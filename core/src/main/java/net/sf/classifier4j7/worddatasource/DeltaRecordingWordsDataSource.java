@@ -0,0 +1,177 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Records the count changes made to a datasource so that they can be shipped to replicas, which
+ * catch up by applying the delta files with a {@link DeltaImporter} instead of reloading the whole model.</p>
+ *
+ * <p>{@link #exportDelta(File)} writes the changes made since the previous export to a file named after
+ * its sequence number, and starts recording again. Each word changed appears once in a delta,
+ * whatever the number of times it was taught.</p>
+ *
+ * <p>Pruning is not recorded: replicas must call removeUnsignificantWordProbabilities themselves, which
+ * removes the same words since they have the same counts.</p>
+ */
+public class DeltaRecordingWordsDataSource implements ICategorisedWordsDataSource {
+    private final IWordsDataSource wordsDataSource;
+    private Map<WordProbability, WordProbability> changes = new HashMap<>();
+    private long lastSequence;
+
+    public DeltaRecordingWordsDataSource(IWordsDataSource wordsDataSource) {
+        this(wordsDataSource, 0);
+    }
+
+    /**
+     * @param wordsDataSource the datasource to record
+     * @param lastSequence    the sequence number of the last delta exported for this datasource, 0 if none
+     */
+    public DeltaRecordingWordsDataSource(IWordsDataSource wordsDataSource, long lastSequence) {
+        if (wordsDataSource == null) {
+            throw new IllegalArgumentException("wordsDataSource cannot be null");
+        }
+        if (lastSequence < 0) {
+            throw new IllegalArgumentException("lastSequence cannot be negative");
+        }
+        this.wordsDataSource = wordsDataSource;
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) throws WordsDataSourceException {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public synchronized WordProbability getWordProbability(String category, String word) throws WordsDataSourceException {
+        if (wordsDataSource instanceof ICategorisedWordsDataSource) {
+            return ((ICategorisedWordsDataSource) wordsDataSource).getWordProbability(category, word);
+        }
+        checkDefaultCategory(category);
+        return wordsDataSource.getWordProbability(word);
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) throws WordsDataSourceException {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) throws WordsDataSourceException {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addMatch(String category, String word) throws WordsDataSourceException {
+        checkArguments(category, word);
+        if (wordsDataSource instanceof ICategorisedWordsDataSource) {
+            ((ICategorisedWordsDataSource) wordsDataSource).addMatch(category, word);
+        } else {
+            checkDefaultCategory(category);
+            wordsDataSource.addMatch(word);
+        }
+        getChange(category, word).incrementMatchingCount();
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addNonMatch(String category, String word) throws WordsDataSourceException {
+        checkArguments(category, word);
+        if (wordsDataSource instanceof ICategorisedWordsDataSource) {
+            ((ICategorisedWordsDataSource) wordsDataSource).addNonMatch(category, word);
+        } else {
+            checkDefaultCategory(category);
+            wordsDataSource.addNonMatch(word);
+        }
+        getChange(category, word).incrementNonMatchingCount();
+    }
+
+    @Override
+    public synchronized Collection<WordProbability> getAll() {
+        return wordsDataSource.getAll();
+    }
+
+    @Override
+    public synchronized void removeUnsignificantWordProbabilities() {
+        wordsDataSource.removeUnsignificantWordProbabilities();
+    }
+
+    /**
+     * Writes the changes recorded since the previous export to a new delta file
+     *
+     * @param dir the directory of the delta files
+     * @return the sequence number of the delta file written, or -1 if nothing changed
+     */
+    public synchronized long exportDelta(File dir) throws WordsDataSourceException {
+        if (changes.isEmpty()) {
+            return -1;
+        }
+        long sequence = lastSequence + 1;
+        try {
+            DeltaFile.write(dir, sequence, new ArrayList<>(changes.values()));
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem writing delta " + sequence, e);
+        }
+        changes = new HashMap<>();
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return the number of words changed since the previous export
+     */
+    public synchronized int getChangeCount() {
+        return changes.size();
+    }
+
+    private WordProbability getChange(String category, String word) {
+        WordProbability key = new WordProbability(category, word);
+        WordProbability change = changes.get(key);
+        if (change == null) {
+            change = key;
+            change.setMatchingCount(0);
+            change.setNonMatchingCount(0);
+            changes.put(change, change);
+        }
+        return change;
+    }
+
+    private void checkArguments(String category, String word) {
+        if (category == null) {
+            throw new IllegalArgumentException("category cannot be null");
+        }
+        if (word == null) {
+            throw new IllegalArgumentException("word cannot be null");
+        }
+    }
+
+    private void checkDefaultCategory(String category) {
+        if (!ICategorisedClassifier.DEFAULT_CATEGORY.equals(category)) {
+            throw new IllegalArgumentException("Word Data Source does not support non-default categories.");
+        }
+    }
+}
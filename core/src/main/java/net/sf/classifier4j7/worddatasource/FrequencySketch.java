@@ -0,0 +1,67 @@
+package net.sf.classifier4j7.worddatasource;
+
+/**
+ * Approximates how often each category and word was accessed recently, in a fixed amount of memory:
+ * a small Count-Min sketch of byte counters which are all halved after <code>sampleSize</code>
+ * increments, so that old accesses count less and less.
+ */
+final class FrequencySketch {
+    /**
+     * The most bytes used by the counters per expected entry, the width being rounded up to a power of 2
+     */
+    static final int MAX_BYTES_PER_ENTRY = 8;
+
+    private static final int DEPTH = 4;
+    private static final int MAX_FREQUENCY = 15;
+
+    private final byte[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int sampleCount;
+
+    /**
+     * @param expectedEntries the number of entries whose frequency matters
+     */
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(256, Math.min(1 << 28, expectedEntries)) - 1) << 1;
+        this.counters = new byte[width * DEPTH];
+        this.mask = width - 1;
+        this.sampleSize = Math.max(1, expectedEntries) * 10;
+    }
+
+    /**
+     * @return the bytes used by the counters
+     */
+    int sizeInBytes() {
+        return counters.length;
+    }
+
+    void increment(long hash) {
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counters[index] < MAX_FREQUENCY) {
+                counters[index]++;
+            }
+        }
+        if (++sampleCount == sampleSize) {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>= 1;
+            }
+            sampleCount = 0;
+        }
+    }
+
+    int frequency(long hash) {
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+}
@@ -0,0 +1,20 @@
+package net.sf.classifier4j7.worddatasource;
+
+/**
+ * A datasource which can add several matches and non-matches of a word at once, for example when
+ * applying a delta or flushing a buffer, instead of one call to addMatch or addNonMatch per occurrence.
+ */
+public interface ICountingWordsDataSource extends ICategorisedWordsDataSource {
+
+    /**
+     * Adds the counts to those of the word, creating it if needed
+     *
+     * @param category         the category to add the counts to
+     * @param word             the word
+     * @param matchingCount    the number of matches to add, not negative
+     * @param nonMatchingCount the number of non-matches to add, not negative
+     * @throws WordsDataSourceException If there is a fatal problem. For
+     *                                  example, the database is unavailable
+     */
+    void addCounts(String category, String word, long matchingCount, long nonMatchingCount) throws WordsDataSourceException;
+}
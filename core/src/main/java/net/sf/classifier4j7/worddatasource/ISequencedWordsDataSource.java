@@ -0,0 +1,31 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.util.List;
+
+/**
+ * A datasource which stores the sequence number of the last delta applied to it together with its counts,
+ * so that a {@link DeltaImporter} applies each delta exactly once, even when the process dies while applying it.
+ */
+public interface ISequencedWordsDataSource extends ICategorisedWordsDataSource {
+
+    /**
+     * @return the sequence number of the last delta applied, 0 if none
+     * @throws WordsDataSourceException If there is a fatal problem. For
+     *                                  example, the database is unavailable
+     */
+    long getLastAppliedSequence() throws WordsDataSourceException;
+
+    /**
+     * Adds the counts of the changes and records sequence as the last delta applied, atomically: after a
+     * crash, either all of them and the sequence are stored, or none of them. They are durable once the
+     * method returns.
+     *
+     * @param sequence the sequence number of the delta
+     * @param changes  the counts to add, each with its category
+     * @throws WordsDataSourceException If there is a fatal problem. For
+     *                                  example, the database is unavailable
+     */
+    void applyDelta(long sequence, List<WordProbability> changes) throws WordsDataSourceException;
+}
@@ -0,0 +1,17 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.util.Iterator;
+
+/**
+ * A datasource which can iterate over its words sorted by category then word, in the {@link WordOrder}.
+ * Such datasources are merged by streaming through them, see {@link WordsDataSourceMerger}.
+ */
+public interface ISortedWordsDataSource extends IWordsDataSource {
+
+    /**
+     * @return the word probabilities in the {@link WordOrder}, read while iterating
+     */
+    Iterator<WordProbability> getAllSorted() throws WordsDataSourceException;
+}
@@ -0,0 +1,17 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.tokenizer.TokenKey;
+
+/**
+ * A datasource which can look up a word from a {@link TokenKey}, without copying it into a String.
+ */
+public interface ITokenLookupWordsDataSource extends IWordsDataSource {
+
+    /**
+     * @param category the category to check against
+     * @param word     the word, it may change once the method returns
+     * @return the same as <code>getWordProbability(category, word.toString())</code>
+     */
+    WordProbability getWordProbability(String category, TokenKey word) throws WordsDataSourceException;
+}
@@ -59,7 +59,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * <p>A JDBC based datasource. It requires a table of the following structure (tested in MySQL 4):
@@ -80,9 +82,8 @@ import java.util.Collection;
  * @author Nick Lothian
  * @author Peter Leschev
  */
-public class JDBCWordsDataSource implements ICategorisedWordsDataSource {
-    private static final String UPDATE_MATCH_QUERY = "UPDATE word_probability SET match_count = match_count + 1 WHERE word = ? AND category = ?";
-    private static final String UPDATE_NON_MATCH_QUERY = "UPDATE word_probability SET nonmatch_count = nonmatch_count + 1 WHERE word = ? AND category = ?";
+public class JDBCWordsDataSource implements ICountingWordsDataSource {
+    private static final String UPDATE_QUERY = "UPDATE word_probability SET match_count = match_count + ?, nonmatch_count = nonmatch_count + ? WHERE word = ? AND category = ?";
     private static final String INSERT_QUERY = "INSERT INTO word_probability (word, category, match_count, nonmatch_count) VALUES (?, ?, ?, ?)";
 
     private DataSource dataSource;
@@ -97,8 +98,8 @@ public class JDBCWordsDataSource implements ICategorisedWordsDataSource {
     }
 
     public WordProbability getWordProbability(String category, String word) throws WordsDataSourceException {
-        int matchingCount = 0;
-        int nonMatchingCount = 0;
+        long matchingCount = 0;
+        long nonMatchingCount = 0;
 
         try (Connection conn = dataSource.getConnection()) {
 
@@ -108,8 +109,8 @@ public class JDBCWordsDataSource implements ICategorisedWordsDataSource {
 
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                matchingCount = rs.getInt("match_count");
-                nonMatchingCount = rs.getInt("nonmatch_count");
+                matchingCount = rs.getLong("match_count");
+                nonMatchingCount = rs.getLong("nonmatch_count");
             }
             rs.close();
             return new WordProbability(word, matchingCount, nonMatchingCount);
@@ -123,33 +124,28 @@ public class JDBCWordsDataSource implements ICategorisedWordsDataSource {
         return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
     }
 
-    private void updateWordProbability(String category, String word, boolean isMatch) throws WordsDataSourceException {
+    private void updateWordProbability(String category, String word, long matchingCount, long nonMatchingCount) throws WordsDataSourceException {
         // truncate word at 255 characters
         if (word.length() > 255) {
             word = word.substring(0, 254);
         }
 
         try (Connection conn = dataSource.getConnection()) {
-            PreparedStatement selectStatement = conn.prepareStatement("SELECT 1 FROM word_probability WHERE word = ? AND category = ?");
-            selectStatement.setString(1, word);
-            selectStatement.setString(2, category);
-            ResultSet rs = selectStatement.executeQuery();
-            if (!rs.next()) {
+            PreparedStatement updateStatement = conn.prepareStatement(UPDATE_QUERY);
+            // update the word counts
+            updateStatement.setLong(1, matchingCount);
+            updateStatement.setLong(2, nonMatchingCount);
+            updateStatement.setString(3, word);
+            updateStatement.setString(4, category);
+            if (updateStatement.executeUpdate() == 0) {
                 PreparedStatement insertStatement = conn.prepareStatement(INSERT_QUERY);
                 // word is not in table
                 // insert the word
                 insertStatement.setString(1, word);
                 insertStatement.setString(2, category);
-                insertStatement.setInt(3, isMatch ? 1 : 0);
-                insertStatement.setInt(4, isMatch ? 0 : 1);
+                insertStatement.setLong(3, matchingCount);
+                insertStatement.setLong(4, nonMatchingCount);
                 insertStatement.execute();
-            } else {
-                String query = isMatch ? UPDATE_MATCH_QUERY : UPDATE_NON_MATCH_QUERY;
-                PreparedStatement updateStatement = conn.prepareStatement(query);
-                // update the word count
-                updateStatement.setString(1, word);
-                updateStatement.setString(2, category);
-                updateStatement.execute();
             }
 
         } catch (SQLException e) {
@@ -161,28 +157,55 @@ public class JDBCWordsDataSource implements ICategorisedWordsDataSource {
         if (category == null) {
             throw new IllegalArgumentException("category cannot be null");
         }
-        updateWordProbability(category, word, true);
+        updateWordProbability(category, word, 1, 0);
     }
 
     public void addMatch(String word) throws WordsDataSourceException {
-        updateWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word, true);
+        updateWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word, 1, 0);
     }
 
     public void addNonMatch(String category, String word) throws WordsDataSourceException {
         if (category == null) {
             throw new IllegalArgumentException("category cannot be null");
         }
-        updateWordProbability(category, word, false);
+        updateWordProbability(category, word, 0, 1);
     }
 
     public void addNonMatch(String word) throws WordsDataSourceException {
-        updateWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word, false);
+        updateWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word, 0, 1);
+    }
+
+    /**
+     * Updates the counts with a single statement, whatever their values
+     *
+     * @see ICountingWordsDataSource#addCounts(java.lang.String, java.lang.String, long, long)
+     */
+    public void addCounts(String category, String word, long matchingCount, long nonMatchingCount) throws WordsDataSourceException {
+        if (category == null) {
+            throw new IllegalArgumentException("category cannot be null");
+        }
+        if (matchingCount < 0 || nonMatchingCount < 0) {
+            throw new IllegalArgumentException("matchingCount and nonMatchingCount cannot be negative");
+        }
+        updateWordProbability(category, word, matchingCount, nonMatchingCount);
     }
 
     @Override
     public Collection<WordProbability> getAll() {
-        //TODO
-        return null;
+        List<WordProbability> wps = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT word, category, match_count, nonmatch_count FROM word_probability");
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                WordProbability wp = new WordProbability(rs.getString("word"), rs.getLong("match_count"), rs.getLong("nonmatch_count"));
+                wp.setCategory(rs.getString("category"));
+                wps.add(wp);
+            }
+            rs.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Problem obtaining all WordProbabilities from database", e);
+        }
+        return wps;
     }
 
     @Override
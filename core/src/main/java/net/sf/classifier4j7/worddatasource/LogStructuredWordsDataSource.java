@@ -0,0 +1,768 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.util.VarInt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A persistent datasource built as a log-structured store.</p>
+ *
+ * <p>Every count change is appended to the current segment file of the directory and the
+ * segment is synced to disk every <code>syncInterval</code> changes, or on {@link #sync()}. Reads are
+ * served by an in-memory index holding the counts of all words.</p>
+ *
+ * <p>When a segment reaches <code>segmentSize</code> bytes a new one is started. Once
+ * <code>compactionThreshold</code> segments are closed, a background thread merges them with the
+ * current run, the sorted and immutable file of all the counts, into a new run and deletes them.
+ * Opening the directory again loads the latest run and replays the segments written after it.</p>
+ *
+ * <p>The runs are sorted in the {@link WordOrder}, so {@link #getAllSorted()} streams the run left by a
+ * compaction of all the segments.</p>
+ *
+ * <p>A delta applied with {@link #applyDelta(long, List)} is appended as a single record holding its
+ * sequence number and all its changes, and synced, so that a crash keeps all of it or none of it. Every
+ * segment starts with a record of the sequence number of the last delta applied, so that it survives the
+ * compaction of the segments holding the deltas.</p>
+ */
+public class LogStructuredWordsDataSource implements ICountingWordsDataSource, ISequencedWordsDataSource, ISortedWordsDataSource, AutoCloseable {
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_SYNC_INTERVAL = 1000;
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 4;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".dat";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final byte DELTA = 0;
+    private static final byte REMOVE = 1;
+    private static final byte BATCH = 2;
+
+    private final File dir;
+    private final long segmentSize;
+    private final int syncInterval;
+    private final int compactionThreshold;
+    private volatile PruningPolicy pruningPolicy = PruningPolicy.DEFAULT;
+
+    private final Map<String, Map<String, long[]>> index = new HashMap<>();
+    private final List<Long> closedSegments = new ArrayList<>();
+    private final Object compactionLock = new Object();
+    private final ExecutorService compactor;
+
+    // the sequence number of the last segment merged in the run, -1 when there is no run
+    private long runSequence = -1;
+    private long segmentSequence;
+    private FileOutputStream segmentFile;
+    private DataOutputStream segment;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    private int unsyncedCount;
+    private long lastAppliedSequence;
+    // the size of the record of the last delta applied starting the current segment
+    private int segmentHeaderSize;
+    private boolean compactionScheduled;
+    private volatile IOException compactionFailure;
+
+    public LogStructuredWordsDataSource(File dir) throws WordsDataSourceException {
+        this(dir, DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_INTERVAL, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param dir                 the directory of the segment and run files, created if needed
+     * @param segmentSize         the size in bytes after which a new segment is started
+     * @param syncInterval        the number of changes after which the segment is synced to disk
+     * @param compactionThreshold the number of closed segments that triggers a compaction
+     */
+    public LogStructuredWordsDataSource(File dir, long segmentSize, int syncInterval, int compactionThreshold) throws WordsDataSourceException {
+        if (segmentSize <= 0 || syncInterval <= 0 || compactionThreshold <= 0) {
+            throw new IllegalArgumentException("segmentSize, syncInterval and compactionThreshold must be greater than 0");
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.syncInterval = syncInterval;
+        this.compactionThreshold = compactionThreshold;
+        this.compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "LogStructuredWordsDataSource compactor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            open();
+        } catch (IOException e) {
+            compactor.shutdown();
+            throw new WordsDataSourceException("Problem opening " + dir, e);
+        }
+    }
+
+    private void open() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        List<Long> runs = sequences(RUN_PREFIX, RUN_SUFFIX);
+        List<Long> segments = sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        if (!runs.isEmpty()) {
+            runSequence = runs.get(runs.size() - 1);
+            try (DataInputStream in = openInput(runFile(runSequence))) {
+                for (Record record = readRecord(in, false); record != null; record = readRecord(in, false)) {
+                    getCategory(record.category).put(record.word, new long[]{record.matchingCount, record.nonMatchingCount});
+                }
+            }
+        }
+        // leftovers of a compaction interrupted after its run was written
+        for (Long run : runs) {
+            if (run != runSequence) {
+                runFile(run).delete();
+            }
+        }
+        for (File file : listFiles(TMP_SUFFIX)) {
+            file.delete();
+        }
+
+        segmentSequence = runSequence + 1;
+        for (Long sequence : segments) {
+            if (sequence <= runSequence) {
+                segmentFile(sequence).delete();
+            } else {
+                replay(segmentFile(sequence));
+                closedSegments.add(sequence);
+                segmentSequence = sequence + 1;
+            }
+        }
+        openSegment();
+    }
+
+    private void replay(File file) throws IOException {
+        try (DataInputStream in = openInput(file)) {
+            for (Record record = readRecord(in, true); record != null; record = readRecord(in, true)) {
+                if (record.type == REMOVE) {
+                    getCategory(record.category).remove(record.word);
+                } else if (record.type == BATCH) {
+                    for (Record change : record.changes) {
+                        add(change.category, change.word, change.matchingCount, change.nonMatchingCount);
+                    }
+                    lastAppliedSequence = record.sequence;
+                } else {
+                    add(record.category, record.word, record.matchingCount, record.nonMatchingCount);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public synchronized WordProbability getWordProbability(String category, String word) {
+        Map<String, long[]> words = index.get(category);
+        long[] counts = words == null ? null : words.get(word);
+        return counts == null ? null : toWordProbability(category, word, counts);
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) throws WordsDataSourceException {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) throws WordsDataSourceException {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public void addMatch(String category, String word) throws WordsDataSourceException {
+        addCounts(category, word, 1, 0);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public void addNonMatch(String category, String word) throws WordsDataSourceException {
+        addCounts(category, word, 0, 1);
+    }
+
+    /**
+     * Appends a single record for all the counts
+     *
+     * @see ICountingWordsDataSource#addCounts(java.lang.String, java.lang.String, long, long)
+     */
+    public synchronized void addCounts(String category, String word, long matchingCount, long nonMatchingCount) throws WordsDataSourceException {
+        if (category == null) {
+            throw new IllegalArgumentException("category cannot be null");
+        }
+        if (word == null) {
+            throw new IllegalArgumentException("word cannot be null");
+        }
+        if (matchingCount < 0 || nonMatchingCount < 0) {
+            throw new IllegalArgumentException("matchingCount and nonMatchingCount cannot be negative");
+        }
+        append(DELTA, category, word, matchingCount, nonMatchingCount);
+        add(category, word, matchingCount, nonMatchingCount);
+    }
+
+    private void add(String category, String word, long matchingCount, long nonMatchingCount) {
+        Map<String, long[]> words = getCategory(category);
+        long[] counts = words.get(word);
+        if (counts == null) {
+            words.put(word, new long[]{matchingCount, nonMatchingCount});
+        } else {
+            counts[0] += matchingCount;
+            counts[1] += nonMatchingCount;
+        }
+    }
+
+    /**
+     * Appends the changes and the sequence number as a single record, and syncs the segment
+     *
+     * @see ISequencedWordsDataSource#applyDelta(long, java.util.List)
+     */
+    public synchronized void applyDelta(long sequence, List<WordProbability> changes) throws WordsDataSourceException {
+        if (changes == null) {
+            throw new IllegalArgumentException("changes cannot be null");
+        }
+        for (WordProbability change : changes) {
+            if (change.getCategory() == null || change.getWord() == null) {
+                throw new IllegalArgumentException("category and word cannot be null");
+            }
+            if (change.getMatchingCount() < 0 || change.getNonMatchingCount() < 0) {
+                throw new IllegalArgumentException("matchingCount and nonMatchingCount cannot be negative");
+            }
+        }
+        if (compactionFailure != null) {
+            throw new WordsDataSourceException("Background compaction failed", compactionFailure);
+        }
+        try {
+            writeBatch(sequence, changes);
+            syncSegment();
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem appending to segment", e);
+        }
+        for (WordProbability change : changes) {
+            add(change.getCategory(), change.getWord(), change.getMatchingCount(), change.getNonMatchingCount());
+        }
+        lastAppliedSequence = sequence;
+        try {
+            if (segment.size() >= segmentSize) {
+                rotateSegment();
+            }
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem rotating segment", e);
+        }
+    }
+
+    /**
+     * @see ISequencedWordsDataSource#getLastAppliedSequence()
+     */
+    public synchronized long getLastAppliedSequence() {
+        return lastAppliedSequence;
+    }
+
+    /**
+     * @return a copy of all the word probabilities
+     */
+    @Override
+    public synchronized Collection<WordProbability> getAll() {
+        List<WordProbability> wps = new ArrayList<>();
+        for (Map.Entry<String, Map<String, long[]>> category : index.entrySet()) {
+            for (Map.Entry<String, long[]> word : category.getValue().entrySet()) {
+                wps.add(toWordProbability(category.getKey(), word.getKey(), word.getValue()));
+            }
+        }
+        return wps;
+    }
+
+    /**
+     * Removes the words rejected by the pruning policy
+     */
+    @Override
+    public synchronized void removeUnsignificantWordProbabilities() {
+        try {
+            for (Map.Entry<String, Map<String, long[]>> category : index.entrySet()) {
+                Iterator<Map.Entry<String, long[]>> it = category.getValue().entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, long[]> word = it.next();
+                    if (pruningPolicy.isUnsignificant(toWordProbability(category.getKey(), word.getKey(), word.getValue()))) {
+                        append(REMOVE, category.getKey(), word.getKey(), 0, 0);
+                        it.remove();
+                    }
+                }
+            }
+        } catch (WordsDataSourceException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the current segment and compacts all the segments in the calling thread, then streams the run.
+     * The changes made while iterating are not seen. The run file is closed at the end of the iteration.
+     *
+     * @see ISortedWordsDataSource#getAllSorted()
+     */
+    @Override
+    public Iterator<WordProbability> getAllSorted() throws WordsDataSourceException {
+        try {
+            synchronized (this) {
+                if (segment.size() > segmentHeaderSize) {
+                    rotateSegment();
+                }
+            }
+            synchronized (compactionLock) {
+                runCompaction();
+                long run;
+                synchronized (this) {
+                    run = runSequence;
+                }
+                if (run < 0) {
+                    return Collections.<WordProbability>emptyList().iterator();
+                }
+                // opened before a later compaction can delete the run
+                return new RunIterator(openInput(runFile(run)));
+            }
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem compacting segments", e);
+        }
+    }
+
+    public PruningPolicy getPruningPolicy() {
+        return pruningPolicy;
+    }
+
+    public void setPruningPolicy(PruningPolicy pruningPolicy) {
+        if (pruningPolicy == null) {
+            throw new IllegalArgumentException("pruningPolicy cannot be null");
+        }
+        this.pruningPolicy = pruningPolicy;
+    }
+
+
+    /**
+     * Forces the changes appended so far to disk
+     */
+    public synchronized void sync() throws WordsDataSourceException {
+        try {
+            syncSegment();
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem syncing segment", e);
+        }
+    }
+
+    /**
+     * Merges the closed segments into a new run, in the calling thread
+     */
+    public void compact() throws WordsDataSourceException {
+        try {
+            runCompaction();
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem compacting segments", e);
+        }
+    }
+
+    /**
+     * Waits for a running compaction, then syncs and closes the current segment
+     */
+    @Override
+    public void close() throws WordsDataSourceException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                syncSegment();
+                segment.close();
+            } catch (IOException e) {
+                throw new WordsDataSourceException("Problem closing segment", e);
+            }
+        }
+    }
+
+    private void append(byte type, String category, String word, long matchingCount, long nonMatchingCount) throws WordsDataSourceException {
+        if (compactionFailure != null) {
+            throw new WordsDataSourceException("Background compaction failed", compactionFailure);
+        }
+        try {
+            // the record is built first, so that a word too long for writeUTF leaves the segment untouched
+            recordBuffer.reset();
+            record.writeByte(type);
+            record.writeUTF(category);
+            record.writeUTF(word);
+            VarInt.write(matchingCount, record);
+            VarInt.write(nonMatchingCount, record);
+            recordBuffer.writeTo(segment);
+            if (++unsyncedCount >= syncInterval) {
+                syncSegment();
+            }
+            if (segment.size() >= segmentSize) {
+                rotateSegment();
+            }
+        } catch (IOException e) {
+            throw new WordsDataSourceException("Problem appending to segment", e);
+        }
+    }
+
+    /**
+     * Writes the delta as a single record, built first so that a word too long leaves the segment untouched
+     */
+    private void writeBatch(long sequence, List<WordProbability> changes) throws IOException {
+        recordBuffer.reset();
+        record.writeByte(BATCH);
+        record.writeLong(sequence);
+        VarInt.write(changes.size(), record);
+        for (WordProbability change : changes) {
+            record.writeUTF(change.getCategory());
+            record.writeUTF(change.getWord());
+            VarInt.write(change.getMatchingCount(), record);
+            VarInt.write(change.getNonMatchingCount(), record);
+        }
+        recordBuffer.writeTo(segment);
+    }
+
+    private void syncSegment() throws IOException {
+        segment.flush();
+        segmentFile.getChannel().force(false);
+        unsyncedCount = 0;
+    }
+
+    private void openSegment() throws IOException {
+        segmentFile = new FileOutputStream(segmentFile(segmentSequence));
+        segment = new DataOutputStream(new BufferedOutputStream(segmentFile));
+        if (lastAppliedSequence > 0) {
+            // synced before the previous segments can be compacted away
+            writeBatch(lastAppliedSequence, Collections.<WordProbability>emptyList());
+            syncSegment();
+        }
+        segmentHeaderSize = segment.size();
+    }
+
+    private void rotateSegment() throws IOException {
+        syncSegment();
+        segment.close();
+        closedSegments.add(segmentSequence);
+        segmentSequence++;
+        openSegment();
+        if (closedSegments.size() >= compactionThreshold && !compactionScheduled) {
+            compactionScheduled = true;
+            compactor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runCompaction();
+                    } catch (IOException e) {
+                        compactionFailure = e;
+                    }
+                }
+            });
+        }
+    }
+
+    private void runCompaction() throws IOException {
+        synchronized (compactionLock) {
+            List<Long> segments;
+            long previousRun;
+            synchronized (this) {
+                compactionScheduled = false;
+                segments = new ArrayList<>(closedSegments);
+                previousRun = runSequence;
+            }
+            if (segments.isEmpty()) {
+                return;
+            }
+
+            // the closed segments are immutable, only this thread reads them
+            TreeMap<String, TreeMap<String, Record>> changes = new TreeMap<>(WordOrder.STRING_ORDER);
+            for (Long sequence : segments) {
+                try (DataInputStream in = openInput(segmentFile(sequence))) {
+                    for (Record record = readRecord(in, true); record != null; record = readRecord(in, true)) {
+                        if (record.type == BATCH) {
+                            for (Record change : record.changes) {
+                                addChange(changes, change);
+                            }
+                        } else {
+                            addChange(changes, record);
+                        }
+                    }
+                }
+            }
+
+            long lastSegment = segments.get(segments.size() - 1);
+            File tmp = new File(dir, RUN_PREFIX + lastSegment + TMP_SUFFIX);
+            try (FileOutputStream tmpFile = new FileOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(tmpFile));
+                 DataInputStream previous = previousRun < 0 ? null : openInput(runFile(previousRun))) {
+                merge(previous, flatten(changes), out);
+                out.flush();
+                tmpFile.getChannel().force(true);
+            }
+            // the run and its name must be on disk before the files it replaces are deleted
+            Files.move(tmp.toPath(), runFile(lastSegment).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+
+            synchronized (this) {
+                closedSegments.removeAll(segments);
+                runSequence = lastSegment;
+            }
+            if (previousRun >= 0) {
+                runFile(previousRun).delete();
+            }
+            for (Long sequence : segments) {
+                segmentFile(sequence).delete();
+            }
+        }
+    }
+
+    private void syncDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            // directories cannot be opened on some platforms, such as Windows, where renames are durable
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void merge(DataInputStream previous, Iterator<Record> changes, DataOutputStream out) throws IOException {
+        Record run = previous == null ? null : readRecord(previous, false);
+        Record change = changes.hasNext() ? changes.next() : null;
+        while (run != null || change != null) {
+            int comparison = run == null ? 1 : change == null ? -1 : compare(run, change);
+            if (comparison < 0) {
+                writeRecord(run, out);
+                run = readRecord(previous, false);
+            } else {
+                if (comparison == 0) {
+                    if (change.type != REMOVE) {
+                        change.matchingCount += run.matchingCount;
+                        change.nonMatchingCount += run.nonMatchingCount;
+                    }
+                    run = readRecord(previous, false);
+                }
+                // a removal followed by new counts was replaced by a REMOVE record holding those counts
+                if (change.type != REMOVE || change.matchingCount + change.nonMatchingCount > 0) {
+                    writeRecord(change, out);
+                }
+                change = changes.hasNext() ? changes.next() : null;
+            }
+        }
+    }
+
+    private static void addChange(TreeMap<String, TreeMap<String, Record>> changes, Record record) {
+        TreeMap<String, Record> words = changes.get(record.category);
+        if (words == null) {
+            words = new TreeMap<>(WordOrder.STRING_ORDER);
+            changes.put(record.category, words);
+        }
+        Record change = words.get(record.word);
+        if (change == null || record.type == REMOVE) {
+            words.put(record.word, record);
+        } else {
+            change.matchingCount += record.matchingCount;
+            change.nonMatchingCount += record.nonMatchingCount;
+        }
+    }
+
+    private static Iterator<Record> flatten(TreeMap<String, TreeMap<String, Record>> changes) {
+        List<Record> records = new ArrayList<>();
+        for (TreeMap<String, Record> words : changes.values()) {
+            records.addAll(words.values());
+        }
+        return records.iterator();
+    }
+
+    private static int compare(Record r1, Record r2) {
+        int comparison = WordOrder.compare(r1.category, r2.category);
+        return comparison != 0 ? comparison : WordOrder.compare(r1.word, r2.word);
+    }
+
+    private static void writeRecord(Record record, DataOutputStream out) throws IOException {
+        out.writeUTF(record.category);
+        out.writeUTF(record.word);
+        VarInt.write(record.matchingCount, out);
+        VarInt.write(record.nonMatchingCount, out);
+    }
+
+    /**
+     * @param typed true for segment records, which start with their type
+     * @return the next record, or null at the end of the file or at a record truncated by a crash
+     */
+    private static Record readRecord(DataInputStream in, boolean typed) throws IOException {
+        try {
+            Record record = new Record();
+            record.type = typed ? in.readByte() : DELTA;
+            if (record.type == BATCH) {
+                record.sequence = in.readLong();
+                long count = VarInt.read(in);
+                record.changes = new ArrayList<>();
+                for (long i = 0; i < count; i++) {
+                    record.changes.add(readRecord(in, false));
+                }
+                // a change truncated by a crash is null, and so is the whole delta
+                return record.changes.contains(null) ? null : record;
+            }
+            record.category = in.readUTF();
+            record.word = in.readUTF();
+            record.matchingCount = VarInt.read(in);
+            record.nonMatchingCount = VarInt.read(in);
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private Map<String, long[]> getCategory(String category) {
+        Map<String, long[]> words = index.get(category);
+        if (words == null) {
+            words = new HashMap<>();
+            index.put(category, words);
+        }
+        return words;
+    }
+
+    private static WordProbability toWordProbability(String category, String word, long[] counts) {
+        WordProbability wp = new WordProbability(word, counts[0], counts[1]);
+        wp.setCategory(category);
+        return wp;
+    }
+
+    private static DataInputStream openInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(dir, SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+    }
+
+    private File runFile(long sequence) {
+        return new File(dir, RUN_PREFIX + sequence + RUN_SUFFIX);
+    }
+
+    private List<File> listFiles(String suffix) {
+        List<File> files = new ArrayList<>();
+        File[] all = dir.listFiles();
+        if (all != null) {
+            for (File file : all) {
+                if (file.getName().endsWith(suffix)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private List<Long> sequences(String prefix, String suffix) {
+        List<Long> sequences = new ArrayList<>();
+        for (File file : listFiles(suffix)) {
+            String name = file.getName();
+            if (name.startsWith(prefix)) {
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // not one of our files
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private static final class RunIterator implements Iterator<WordProbability> {
+        private final DataInputStream in;
+        private Record next;
+
+        RunIterator(DataInputStream in) throws IOException {
+            this.in = in;
+            advance();
+        }
+
+        private void advance() throws IOException {
+            next = readRecord(in, false);
+            if (next == null) {
+                in.close();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public WordProbability next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Record record = next;
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return toWordProbability(record.category, record.word, new long[]{record.matchingCount, record.nonMatchingCount});
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class Record {
+        private byte type;
+        private String category;
+        private String word;
+        private long matchingCount;
+        private long nonMatchingCount;
+        // the sequence number and the changes of a BATCH record
+        private long sequence;
+        private List<Record> changes;
+    }
+}
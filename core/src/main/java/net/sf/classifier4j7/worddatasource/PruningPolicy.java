@@ -0,0 +1,65 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.io.Serializable;
+
+/**
+ * <p>Decides which words removeUnsignificantWordProbabilities removes: the words shorter than
+ * <code>minWordLength</code>, and the words whose probability is strictly between
+ * <code>lowerProbability</code> and <code>upperProbability</code>, since they do not move the
+ * classification one way or the other.</p>
+ *
+ * <p>Words seen fewer than <code>minCount</code> times are never removed for being neutral, so that
+ * words still being learnt are not pruned after their first non-match.</p>
+ */
+public final class PruningPolicy implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final PruningPolicy DEFAULT = new PruningPolicy(2, 0.45, 0.55, 0);
+
+    private final int minWordLength;
+    private final double lowerProbability;
+    private final double upperProbability;
+    private final long minCount;
+
+    public PruningPolicy(int minWordLength, double lowerProbability, double upperProbability, long minCount) {
+        if (lowerProbability > upperProbability) {
+            throw new IllegalArgumentException("lowerProbability must be lower than upperProbability");
+        }
+        if (minCount < 0) {
+            throw new IllegalArgumentException("minCount cannot be negative");
+        }
+        this.minWordLength = minWordLength;
+        this.lowerProbability = lowerProbability;
+        this.upperProbability = upperProbability;
+        this.minCount = minCount;
+    }
+
+    public boolean isUnsignificant(WordProbability wp) {
+        if (wp.getWord().length() < minWordLength) {
+            return true;
+        }
+        if (minCount > 0 && wp.getMatchingCount() + wp.getNonMatchingCount() < minCount) {
+            return false;
+        }
+        final double probability = wp.getProbability();
+        return probability < upperProbability && probability > lowerProbability;
+    }
+
+    public int getMinWordLength() {
+        return minWordLength;
+    }
+
+    public double getLowerProbability() {
+        return lowerProbability;
+    }
+
+    public double getUpperProbability() {
+        return upperProbability;
+    }
+
+    public long getMinCount() {
+        return minCount;
+    }
+}
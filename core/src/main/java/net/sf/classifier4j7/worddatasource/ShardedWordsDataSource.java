@@ -0,0 +1,248 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Partitions the words between several datasources by the hash of their category and word, so that
+ * threads training or classifying different words do not contend on a single map or file.</p>
+ *
+ * <p>Each shard is only accessed while holding its own lock. {@link #getWordProbabilities(String, String[])}
+ * looks up several words at once: the words are grouped by shard and, when an executor is given, the
+ * shards are queried in parallel.</p>
+ *
+ * <p>Shards which are not {@link ICategorisedWordsDataSource} only support the default category.</p>
+ */
+public class ShardedWordsDataSource implements ICategorisedWordsDataSource {
+    private final IWordsDataSource[] shards;
+    private final Object[] locks;
+    private final ExecutorService executor;
+
+    public ShardedWordsDataSource(List<? extends IWordsDataSource> shards) {
+        this(shards, null);
+    }
+
+    /**
+     * @param shards   the datasources holding the words, always given in the same order
+     * @param executor the executor querying the shards in parallel, null to query them in the calling thread
+     */
+    public ShardedWordsDataSource(List<? extends IWordsDataSource> shards, ExecutorService executor) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("shards cannot be empty");
+        }
+        this.shards = shards.toArray(new IWordsDataSource[shards.size()]);
+        this.locks = new Object[this.shards.length];
+        for (int i = 0; i < locks.length; i++) {
+            if (this.shards[i] == null) {
+                throw new IllegalArgumentException("shards cannot contain null");
+            }
+            locks[i] = new Object();
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) throws WordsDataSourceException {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public WordProbability getWordProbability(String category, String word) throws WordsDataSourceException {
+        int shard = shardOf(category, word);
+        synchronized (locks[shard]) {
+            return get(shard, category, word);
+        }
+    }
+
+    /**
+     * @param category the category to check against
+     * @param words    the words to look up
+     * @return the word probability of each word, at the same index, or null when the word does not exist
+     */
+    public WordProbability[] getWordProbabilities(final String category, final String[] words) throws WordsDataSourceException {
+        final WordProbability[] wps = new WordProbability[words.length];
+        final int[][] indexes = groupByShard(category, words);
+        List<Integer> used = new ArrayList<>();
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (indexes[shard].length > 0) {
+                used.add(shard);
+            }
+        }
+        // the calling thread queries the last shard itself
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < used.size() - 1; i++) {
+            final int shard = used.get(i);
+            if (executor == null) {
+                lookup(shard, category, words, indexes[shard], wps);
+            } else {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws WordsDataSourceException {
+                        lookup(shard, category, words, indexes[shard], wps);
+                        return null;
+                    }
+                }));
+            }
+        }
+        if (!used.isEmpty()) {
+            int shard = used.get(used.size() - 1);
+            lookup(shard, category, words, indexes[shard], wps);
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WordsDataSourceException("Interrupted while looking up words", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof WordsDataSourceException) {
+                    throw (WordsDataSourceException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new WordsDataSourceException("Problem looking up words", e.getCause());
+            }
+        }
+        return wps;
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) throws WordsDataSourceException {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) throws WordsDataSourceException {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public void addMatch(String category, String word) throws WordsDataSourceException {
+        int shard = shardOf(category, word);
+        synchronized (locks[shard]) {
+            if (shards[shard] instanceof ICategorisedWordsDataSource) {
+                ((ICategorisedWordsDataSource) shards[shard]).addMatch(category, word);
+            } else {
+                checkDefaultCategory(category);
+                shards[shard].addMatch(word);
+            }
+        }
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public void addNonMatch(String category, String word) throws WordsDataSourceException {
+        int shard = shardOf(category, word);
+        synchronized (locks[shard]) {
+            if (shards[shard] instanceof ICategorisedWordsDataSource) {
+                ((ICategorisedWordsDataSource) shards[shard]).addNonMatch(category, word);
+            } else {
+                checkDefaultCategory(category);
+                shards[shard].addNonMatch(word);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the word probabilities of all the shards
+     */
+    @Override
+    public Collection<WordProbability> getAll() {
+        List<WordProbability> wps = new ArrayList<>();
+        for (int shard = 0; shard < shards.length; shard++) {
+            synchronized (locks[shard]) {
+                Collection<WordProbability> all = shards[shard].getAll();
+                if (all != null) {
+                    wps.addAll(all);
+                }
+            }
+        }
+        return wps;
+    }
+
+    @Override
+    public void removeUnsignificantWordProbabilities() {
+        for (int shard = 0; shard < shards.length; shard++) {
+            synchronized (locks[shard]) {
+                shards[shard].removeUnsignificantWordProbabilities();
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private void lookup(int shard, String category, String[] words, int[] indexes, WordProbability[] wps) throws WordsDataSourceException {
+        synchronized (locks[shard]) {
+            for (int index : indexes) {
+                wps[index] = get(shard, category, words[index]);
+            }
+        }
+    }
+
+    private WordProbability get(int shard, String category, String word) throws WordsDataSourceException {
+        if (shards[shard] instanceof ICategorisedWordsDataSource) {
+            return ((ICategorisedWordsDataSource) shards[shard]).getWordProbability(category, word);
+        }
+        checkDefaultCategory(category);
+        return shards[shard].getWordProbability(word);
+    }
+
+    private int[][] groupByShard(String category, String[] words) {
+        int[] shardOfWord = new int[words.length];
+        int[] counts = new int[shards.length];
+        for (int i = 0; i < words.length; i++) {
+            shardOfWord[i] = shardOf(category, words[i]);
+            counts[shardOfWord[i]]++;
+        }
+        int[][] indexes = new int[shards.length][];
+        for (int shard = 0; shard < shards.length; shard++) {
+            indexes[shard] = new int[counts[shard]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < words.length; i++) {
+            indexes[shardOfWord[i]][counts[shardOfWord[i]]++] = i;
+        }
+        return indexes;
+    }
+
+    private int shardOf(String category, String word) {
+        if (category == null) {
+            throw new IllegalArgumentException("category cannot be null");
+        }
+        if (word == null) {
+            throw new IllegalArgumentException("word cannot be null");
+        }
+        int h = 31 * category.hashCode() + word.hashCode();
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % shards.length;
+    }
+
+    private void checkDefaultCategory(String category) {
+        if (!ICategorisedClassifier.DEFAULT_CATEGORY.equals(category)) {
+            throw new IllegalArgumentException("Word Data Source does not support non-default categories.");
+        }
+    }
+}
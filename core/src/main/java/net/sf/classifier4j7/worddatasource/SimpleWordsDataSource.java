@@ -51,24 +51,41 @@
 
 package net.sf.classifier4j7.worddatasource;
 
+import net.sf.classifier4j7.ICategorisedClassifier;
 import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.tokenizer.TokenKey;
 
 import java.io.Serializable;
-import java.util.*;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * <p>A datasource keeping all the words in memory.</p>
+ *
+ * <p>Words can be pruned while training rather than by a full removeUnsignificantWordProbabilities
+ * pass: {@link #setIncrementalPruning(int, int)} sweeps a slice of the words every few inserts, and
+ * {@link #pruneSlice(int)} can also be called from a background thread. The words are kept in a
+ * concurrent map, so readers are never blocked by a sweep.</p>
  *
  * @author Nick Lothian
  * @author Peter Leschev
  *  
  */
-public class SimpleWordsDataSource implements IWordsDataSource, Serializable {
+public class SimpleWordsDataSource implements ITokenLookupWordsDataSource, Serializable {
+    private static final long serialVersionUID = 1L;
     private static final int DEFAULT_MAP_SIZE = 32;
 
     private final Map<String, WordProbability> map;
+    private PruningPolicy pruningPolicy = PruningPolicy.DEFAULT;
+    private int pruneInterval;
+    private int pruneSliceSize;
+    private int insertsSinceSweep;
+    private transient Iterator<Map.Entry<String, WordProbability>> pruneCursor;
 
     public SimpleWordsDataSource(int initialSize){
-        map = new HashMap<>(initialSize, 0.6f);
+        map = new ConcurrentHashMap<>(initialSize, 0.6f);
     }
 
     public SimpleWordsDataSource(){
@@ -83,6 +100,21 @@ public class SimpleWordsDataSource implements IWordsDataSource, Serializable {
      * @see IWordsDataSource#getWordProbability(java.lang.String)
      */
     public WordProbability getWordProbability(String word) {
+        // the concurrent map does not accept null keys
+        return word == null ? null : map.get(word);
+    }
+
+    /**
+     * @see ITokenLookupWordsDataSource#getWordProbability(java.lang.String, net.sf.classifier4j7.tokenizer.TokenKey)
+     */
+    public WordProbability getWordProbability(String category, TokenKey word) {
+        if (!ICategorisedClassifier.DEFAULT_CATEGORY.equals(category)) {
+            throw new IllegalArgumentException("Word Data Source does not support non-default categories.");
+        }
+        if (word == null) {
+            return null;
+        }
+        // Map.get compares the key passed with the equals of the key, not of the Strings in the map
         return map.get(word);
     }
 
@@ -90,27 +122,61 @@ public class SimpleWordsDataSource implements IWordsDataSource, Serializable {
         return map.values();
     }
 
+    public PruningPolicy getPruningPolicy() {
+        return pruningPolicy;
+    }
+
+    public void setPruningPolicy(PruningPolicy pruningPolicy) {
+        if (pruningPolicy == null) {
+            throw new IllegalArgumentException("pruningPolicy cannot be null");
+        }
+        this.pruningPolicy = pruningPolicy;
+    }
+
+    /**
+     * @param pruneInterval  the number of inserts between two sweeps, 0 to disable incremental pruning
+     * @param pruneSliceSize the number of words checked by each sweep
+     */
+    public void setIncrementalPruning(int pruneInterval, int pruneSliceSize) {
+        if (pruneInterval < 0 || pruneSliceSize < 0) {
+            throw new IllegalArgumentException("pruneInterval and pruneSliceSize cannot be negative");
+        }
+        this.pruneInterval = pruneInterval;
+        this.pruneSliceSize = pruneSliceSize;
+    }
+
     @Override
     public void removeUnsignificantWordProbabilities() {
-        List<String> unsignificantWords = new ArrayList<>();
-        for(Map.Entry<String, WordProbability> entry : map.entrySet()){
-            String key = entry.getKey();
-            if(key.length() < 2){
-                unsignificantWords.add(key);
-                continue;
+        Iterator<WordProbability> it = map.values().iterator();
+        while (it.hasNext()) {
+            if (pruningPolicy.isUnsignificant(it.next())) {
+                it.remove();
             }
+        }
+    }
 
-            WordProbability wordProbability = entry.getValue();
-            final double probability = wordProbability.getProbability();
-            if(probability < 0.55 && probability > 0.45){
-                unsignificantWords.add(key);
-                continue;
+    /**
+     * Checks the next <code>sliceSize</code> words, starting again from the beginning once all the
+     * words have been checked, and removes the unsignificant ones
+     *
+     * @return the number of words removed
+     */
+    public synchronized int pruneSlice(int sliceSize) {
+        int removed = 0;
+        int count = Math.min(sliceSize, map.size());
+        for (int i = 0; i < count; i++) {
+            if (pruneCursor == null || !pruneCursor.hasNext()) {
+                pruneCursor = map.entrySet().iterator();
+                if (!pruneCursor.hasNext()) {
+                    break;
+                }
+            }
+            if (pruningPolicy.isUnsignificant(pruneCursor.next().getValue())) {
+                pruneCursor.remove();
+                removed++;
             }
-
-        }
-        for(String str: unsignificantWords){
-            map.remove(str);
         }
+        return removed;
     }
 
     /**
@@ -124,6 +190,7 @@ public class SimpleWordsDataSource implements IWordsDataSource, Serializable {
             wp.incrementMatchingCount();
         }
         setWordProbability(wp);
+        inserted();
     }
 
     /**
@@ -137,5 +204,13 @@ public class SimpleWordsDataSource implements IWordsDataSource, Serializable {
             wp.incrementNonMatchingCount();
         }
         setWordProbability(wp);
+        inserted();
+    }
+
+    private void inserted() {
+        if (pruneInterval > 0 && ++insertsSinceSweep >= pruneInterval) {
+            insertsSinceSweep = 0;
+            pruneSlice(pruneSliceSize);
+        }
     }
 }
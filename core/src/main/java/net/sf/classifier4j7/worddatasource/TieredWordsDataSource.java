@@ -0,0 +1,212 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Keeps the most frequently used words of a persistent datasource in memory.</p>
+ *
+ * <p>Lookups are served by a bounded memory tier. A miss falls through to the persistent tier and the
+ * word is promoted to memory. When the memory tier is full, the least recently used word is demoted
+ * only if the new word has been accessed more often, so that a scan of rare words does not evict
+ * the frequent ones. Access frequencies are approximated by a small sketch whose counters are
+ * halved periodically, so that words which stop being used age out.</p>
+ *
+ * <p>The memory tier holds its own copy of the counts, and lookups return a new WordProbability, so
+ * neither the objects of the persistent tier nor those of the callers are shared with it. Writes go
+ * through to the persistent tier, which stays the reference, and update the copy when the word is in
+ * memory.</p>
+ */
+public class TieredWordsDataSource implements ICategorisedWordsDataSource {
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final ICategorisedWordsDataSource persistentTier;
+    private final int capacity;
+    // the matching and non-matching counts of the words in memory
+    private final LinkedHashMap<Key, long[]> memoryTier;
+    private final FrequencySketch sketch;
+
+    private long hitCount;
+    private long missCount;
+
+    public TieredWordsDataSource(ICategorisedWordsDataSource persistentTier) {
+        this(persistentTier, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param persistentTier the datasource holding all the words, for example a JDBMWordsDataSource
+     * @param capacity       the maximum number of words kept in memory
+     */
+    public TieredWordsDataSource(ICategorisedWordsDataSource persistentTier, int capacity) {
+        if (persistentTier == null) {
+            throw new IllegalArgumentException("persistentTier cannot be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.persistentTier = persistentTier;
+        this.capacity = capacity;
+        this.memoryTier = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true);
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) throws WordsDataSourceException {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public synchronized WordProbability getWordProbability(String category, String word) throws WordsDataSourceException {
+        Key key = new Key(category, word);
+        sketch.increment(key.hash);
+        long[] counts = memoryTier.get(key);
+        if (counts != null) {
+            hitCount++;
+            return toWordProbability(key, counts);
+        }
+        missCount++;
+        WordProbability wp = persistentTier.getWordProbability(category, word);
+        if (wp == null) {
+            return null;
+        }
+        counts = new long[]{wp.getMatchingCount(), wp.getNonMatchingCount()};
+        promote(key, counts);
+        return toWordProbability(key, counts);
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) throws WordsDataSourceException {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) throws WordsDataSourceException {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addMatch(String category, String word) throws WordsDataSourceException {
+        Key key = new Key(category, word);
+        persistentTier.addMatch(category, word);
+        sketch.increment(key.hash);
+        long[] counts = memoryTier.get(key);
+        if (counts != null) {
+            counts[0]++;
+        }
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public synchronized void addNonMatch(String category, String word) throws WordsDataSourceException {
+        Key key = new Key(category, word);
+        persistentTier.addNonMatch(category, word);
+        sketch.increment(key.hash);
+        long[] counts = memoryTier.get(key);
+        if (counts != null) {
+            counts[1]++;
+        }
+    }
+
+    /**
+     * @return all the word probabilities of the persistent tier
+     */
+    @Override
+    public synchronized Collection<WordProbability> getAll() {
+        return persistentTier.getAll();
+    }
+
+    @Override
+    public synchronized void removeUnsignificantWordProbabilities() {
+        persistentTier.removeUnsignificantWordProbabilities();
+        memoryTier.clear();
+    }
+
+    public synchronized int getMemoryTierSize() {
+        return memoryTier.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the ratio of lookups served by the memory tier, 0 when there was no lookup
+     */
+    public synchronized double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private void promote(Key key, long[] counts) {
+        if (memoryTier.size() >= capacity) {
+            Iterator<Map.Entry<Key, long[]>> it = memoryTier.entrySet().iterator();
+            Key victim = it.next().getKey();
+            if (sketch.frequency(key.hash) <= sketch.frequency(victim.hash)) {
+                return;
+            }
+            it.remove();
+        }
+        memoryTier.put(key, counts);
+    }
+
+    private static WordProbability toWordProbability(Key key, long[] counts) {
+        WordProbability wp = new WordProbability(key.word, counts[0], counts[1]);
+        wp.setCategory(key.category);
+        return wp;
+    }
+
+    private static final class Key {
+        private final String category;
+        private final String word;
+        private final long hash;
+
+        Key(String category, String word) {
+            if (category == null) {
+                throw new IllegalArgumentException("category cannot be null");
+            }
+            if (word == null) {
+                throw new IllegalArgumentException("word cannot be null");
+            }
+            this.category = category;
+            this.word = word;
+            this.hash = WordHash.hash(category, word);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && word.equals(other.word) && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) hash;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.sf.classifier4j7.worddatasource;
+
+/**
+ * Hashes a category and a word to 64 well mixed bits, for the probabilistic datasources
+ */
+final class WordHash {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private WordHash() {
+    }
+
+    static long hash(String category, String word) {
+        return hash(category, word, 0);
+    }
+
+    /**
+     * Hashes the characters themselves, four per block as Murmur3 does, rather than combining the
+     * 32 bit hash codes of the strings: words with the same hash code would always collide.
+     *
+     * @param seed the seed, different seeds give independent hashes
+     */
+    static long hash(String category, String word, long seed) {
+        if (category == null) {
+            throw new IllegalArgumentException("category cannot be null");
+        }
+        if (word == null) {
+            throw new IllegalArgumentException("word cannot be null");
+        }
+        long h = update(update(seed, category), word);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long update(long h, String s) {
+        int length = s.length();
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            h = mix(h, s.charAt(i) | (long) s.charAt(i + 1) << 16 | (long) s.charAt(i + 2) << 32 | (long) s.charAt(i + 3) << 48);
+        }
+        long tail = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            tail |= (long) s.charAt(i) << shift;
+        }
+        // the length separates the category from the word
+        return mix(mix(h, tail), length);
+    }
+
+    private static long mix(long h, long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        k *= C2;
+        h ^= k;
+        return Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+    }
+}
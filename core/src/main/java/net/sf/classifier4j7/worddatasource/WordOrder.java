@@ -0,0 +1,68 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * <p>Orders word probabilities by category then word, comparing the code points of the strings.</p>
+ *
+ * <p>It is the order of their UTF-8 bytes, in which the persistent datasources keep their keys. It only
+ * differs from {@link String#compareTo(String)} for the characters above U+FFFF, which sort after
+ * U+E000 to U+FFFF instead of before.</p>
+ */
+public final class WordOrder implements Comparator<WordProbability>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final WordOrder INSTANCE = new WordOrder();
+
+    /**
+     * Compares strings by code point
+     */
+    public static final Comparator<String> STRING_ORDER = new StringOrder();
+
+    private WordOrder() {
+    }
+
+    @Override
+    public int compare(WordProbability wp1, WordProbability wp2) {
+        int comparison = compare(wp1.getCategory(), wp2.getCategory());
+        return comparison != 0 ? comparison : compare(wp1.getWord(), wp2.getWord());
+    }
+
+    public static int compare(String s1, String s2) {
+        int length = Math.min(s1.length(), s2.length());
+        for (int i = 0; i < length; i++) {
+            char c1 = s1.charAt(i);
+            char c2 = s2.charAt(i);
+            if (c1 != c2) {
+                return codePointOrder(c1) - codePointOrder(c2);
+            }
+        }
+        return s1.length() - s2.length();
+    }
+
+    /**
+     * @return the char moved so that the surrogates sort after U+E000 to U+FFFF
+     */
+    private static int codePointOrder(char c) {
+        if (c < Character.MIN_SURROGATE) {
+            return c;
+        }
+        return c <= Character.MAX_SURROGATE ? c + 0x2000 : c - 0x800;
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    private static final class StringOrder implements Comparator<String>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(String s1, String s2) {
+            return WordOrder.compare(s1, s2);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package net.sf.classifier4j7.worddatasource;
+
+import net.sf.classifier4j7.model.WordProbability;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Merges models trained separately, for example on different threads or machines, by summing the
+ * matching and non-matching counts of each category and word.</p>
+ *
+ * <p>Sources which are all {@link ISortedWordsDataSource sorted} are merged by streaming through them,
+ * see {@link #mergeIterator(List, ExecutorService)}. Other sources are merged by hashing the words into
+ * partitions, which are summed in parallel when an executor is given.</p>
+ *
+ * <p>The merged word probabilities are new objects: they can be loaded into a
+ * {@link SimpleWordsDataSource} with setWordProbability, or into any bulk loader taking an iterator.</p>
+ */
+public final class WordsDataSourceMerger {
+    private WordsDataSourceMerger() {
+    }
+
+    public static Collection<WordProbability> merge(List<? extends IWordsDataSource> sources) throws WordsDataSourceException {
+        return merge(sources, null);
+    }
+
+    /**
+     * @param sources  the data sources to merge, they must all support getAll or be sorted
+     * @param executor the executor summing the partitions in parallel, null to merge in the calling thread
+     * @return the summed word probabilities, one per category and word
+     */
+    public static Collection<WordProbability> merge(List<? extends IWordsDataSource> sources, ExecutorService executor) throws WordsDataSourceException {
+        if (isSorted(sources)) {
+            List<WordProbability> merged = new ArrayList<>();
+            for (Iterator<WordProbability> it = mergeIterator(sources, executor); it.hasNext(); ) {
+                merged.add(it.next());
+            }
+            return merged;
+        }
+        return hashMerge(getAll(sources), executor);
+    }
+
+    /**
+     * Merges without holding the merged word probabilities when the sources are all
+     * {@link ISortedWordsDataSource sorted}: they are then read while iterating, in the {@link WordOrder}.
+     * Otherwise the sources are merged by hashing and the iterator goes over the result.
+     *
+     * @param sources  the data sources to merge, they must all support getAll or be sorted
+     * @param executor the executor summing the partitions in parallel when the sources are not sorted,
+     *                 null to merge in the calling thread
+     * @return an iterator over the summed word probabilities, one per category and word
+     */
+    public static Iterator<WordProbability> mergeIterator(List<? extends IWordsDataSource> sources, ExecutorService executor) throws WordsDataSourceException {
+        if (!isSorted(sources)) {
+            return hashMerge(getAll(sources), executor).iterator();
+        }
+        List<Iterator<WordProbability>> iterators = new ArrayList<>(sources.size());
+        for (IWordsDataSource source : sources) {
+            iterators.add(((ISortedWordsDataSource) source).getAllSorted());
+        }
+        return mergeSorted(iterators);
+    }
+
+    private static boolean isSorted(List<? extends IWordsDataSource> sources) {
+        for (IWordsDataSource source : sources) {
+            if (!(source instanceof ISortedWordsDataSource)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Collection<WordProbability>> getAll(List<? extends IWordsDataSource> sources) {
+        List<Collection<WordProbability>> all = new ArrayList<>(sources.size());
+        for (IWordsDataSource source : sources) {
+            Collection<WordProbability> wps = source.getAll();
+            if (wps == null) {
+                throw new IllegalArgumentException(source.getClass().getName() + " does not support getAll");
+            }
+            all.add(wps);
+        }
+        return all;
+    }
+
+    /**
+     * @param sources iterators over word probabilities in the {@link WordOrder}
+     * @return a lazy iterator over the summed word probabilities, in the same order
+     */
+    public static Iterator<WordProbability> mergeSorted(List<? extends Iterator<WordProbability>> sources) {
+        final PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (Iterator<WordProbability> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head(source.next(), source));
+            }
+        }
+        return new Iterator<WordProbability>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public WordProbability next() {
+                if (heads.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                WordProbability merged = null;
+                do {
+                    Head head = heads.poll();
+                    if (merged == null) {
+                        merged = copy(head.wp);
+                    } else {
+                        add(merged, head.wp);
+                    }
+                    if (head.source.hasNext()) {
+                        WordProbability next = head.source.next();
+                        if (WordOrder.INSTANCE.compare(next, head.wp) < 0) {
+                            throw new IllegalArgumentException("Source is not sorted at " + next);
+                        }
+                        head.wp = next;
+                        heads.add(head);
+                    }
+                } while (!heads.isEmpty() && WordOrder.INSTANCE.compare(heads.peek().wp, merged) == 0);
+                return merged;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static Collection<WordProbability> hashMerge(final List<Collection<WordProbability>> sources, ExecutorService executor) throws WordsDataSourceException {
+        final int partitionCount = executor == null ? 1 : Runtime.getRuntime().availableProcessors();
+
+        // each source is split into partitions, then each partition is summed across the sources
+        List<Callable<List<List<WordProbability>>>> splits = new ArrayList<>(sources.size());
+        for (final Collection<WordProbability> source : sources) {
+            splits.add(new Callable<List<List<WordProbability>>>() {
+                @Override
+                public List<List<WordProbability>> call() {
+                    List<List<WordProbability>> partitions = new ArrayList<>(partitionCount);
+                    for (int i = 0; i < partitionCount; i++) {
+                        partitions.add(new ArrayList<WordProbability>());
+                    }
+                    for (WordProbability wp : source) {
+                        partitions.get(partitionOf(wp, partitionCount)).add(wp);
+                    }
+                    return partitions;
+                }
+            });
+        }
+        final List<List<List<WordProbability>>> split = invokeAll(splits, executor);
+
+        List<Callable<Collection<WordProbability>>> sums = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            final int partition = i;
+            sums.add(new Callable<Collection<WordProbability>>() {
+                @Override
+                public Collection<WordProbability> call() {
+                    Map<WordProbability, WordProbability> merged = new HashMap<>();
+                    for (List<List<WordProbability>> partitions : split) {
+                        for (WordProbability wp : partitions.get(partition)) {
+                            WordProbability sum = merged.get(wp);
+                            if (sum == null) {
+                                sum = copy(wp);
+                                merged.put(sum, sum);
+                            } else {
+                                add(sum, wp);
+                            }
+                        }
+                    }
+                    return merged.values();
+                }
+            });
+        }
+        List<WordProbability> merged = new ArrayList<>();
+        for (Collection<WordProbability> sum : invokeAll(sums, executor)) {
+            merged.addAll(sum);
+        }
+        return merged;
+    }
+
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks, ExecutorService executor) throws WordsDataSourceException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (executor == null) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } else {
+                for (Future<T> future : executor.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WordsDataSourceException("Interrupted while merging", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new WordsDataSourceException("Problem merging", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new WordsDataSourceException("Problem merging", e);
+        }
+        return results;
+    }
+
+    private static int partitionOf(WordProbability wp, int partitionCount) {
+        int h = 31 * wp.getCategory().hashCode() + wp.getWord().hashCode();
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    private static WordProbability copy(WordProbability wp) {
+        checkCounts(wp);
+        WordProbability copy = new WordProbability(wp.getWord(), wp.getMatchingCount(), wp.getNonMatchingCount());
+        copy.setCategory(wp.getCategory());
+        return copy;
+    }
+
+    private static void add(WordProbability sum, WordProbability wp) {
+        checkCounts(wp);
+        sum.setMatchingCount(sum.getMatchingCount() + wp.getMatchingCount());
+        sum.setNonMatchingCount(sum.getNonMatchingCount() + wp.getNonMatchingCount());
+    }
+
+    private static void checkCounts(WordProbability wp) {
+        if (wp.getMatchingCount() < 0 || wp.getNonMatchingCount() < 0) {
+            throw new IllegalArgumentException(wp + " has a probability but no counts");
+        }
+    }
+
+    private static final class Head implements Comparable<Head> {
+        private WordProbability wp;
+        private final Iterator<WordProbability> source;
+
+        Head(WordProbability wp, Iterator<WordProbability> source) {
+            this.wp = wp;
+            this.source = source;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return WordOrder.INSTANCE.compare(wp, other.wp);
+        }
+    }
+}
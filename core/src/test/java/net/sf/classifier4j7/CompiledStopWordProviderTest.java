@@ -0,0 +1,35 @@
+package net.sf.classifier4j7;
+
+import net.sf.classifier4j7.stopword.CompiledStopWordProvider;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledStopWordProviderTest {
+
+	@Test
+	public void isStopWord_shouldMatchWholeWordsOnly() {
+		CompiledStopWordProvider swp = new CompiledStopWordProvider(new String[]{"the", "then", "there", "a", "an", "and", null, "the"}, false);
+		for (String word : new String[]{"the", "then", "there", "a", "an", "and"}) {
+			assertTrue(word, swp.isStopWord(word));
+		}
+		for (String word : new String[]{"", "th", "thereof", "b", "The", "ant"}) {
+			assertFalse(word, swp.isStopWord(word));
+		}
+		assertFalse(swp.isStopWord((String) null));
+		assertArrayEquals(new String[]{"a", "an", "and", "the", "the", "then", "there"}, swp.getStopWords());
+	}
+
+	@Test
+	public void isStopWord_shouldFoldCaseOfSlices() {
+		CompiledStopWordProvider swp = new CompiledStopWordProvider(new String[]{"Der", "die", "\u00FCber", "\u00E9t\u00E9"}, true);
+		assertTrue(swp.isStopWord("DER"));
+		assertTrue(swp.isStopWord(new StringBuilder("\u00DCber")));
+		assertTrue(swp.isStopWord("\u00C9T\u00C9"));
+		assertTrue(swp.isStopWord("unter die Br\u00FCcke", 6, 9));
+		assertFalse(swp.isStopWord("unter die Br\u00FCcke", 6, 10));
+		assertFalse(swp.isStopWord("das"));
+	}
+}
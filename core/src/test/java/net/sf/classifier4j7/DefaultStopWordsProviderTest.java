@@ -74,4 +74,13 @@ public class DefaultStopWordsProviderTest {
 		assertFalse(swp.isStopWord("nick"));
 		assertTrue(swp.isStopWord("me"));
 	}
+
+	@Test
+	public void testIsStopWordCharSequence() {
+		DefaultStopWordsProvider provider = new DefaultStopWordsProvider();
+		assertTrue(provider.isStopWord(new StringBuilder("The")));
+		assertTrue(provider.isStopWord((CharSequence) "with"));
+		assertFalse(provider.isStopWord(new StringBuilder("nick")));
+		assertFalse(provider.isStopWord(new StringBuilder()));
+	}
 }
@@ -54,9 +54,13 @@ package net.sf.classifier4j7;
 
 import net.sf.classifier4j7.tokenizer.DefaultTokenizer;
 import net.sf.classifier4j7.tokenizer.ITokenizer;
+import net.sf.classifier4j7.tokenizer.TokenCursor;
 import net.sf.classifier4j7.tokenizer.TokenizerMethod;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 
@@ -85,4 +89,64 @@ public class DefaultTokenizerTest {
         String[] words = tok.tokenize("My very,new-string!and/more(NIO)peter's 1.4");
         assertThat(words).containsExactly("My", "very", "new", "string", "and", "more", "NIO", "peter", "s", "1", "4");
     }
+
+    @Test
+    public void tokenize_shouldMatchStringSplit() {
+        String[] inputs = {"", " ", ",,,", " leading", "trailing  ", "a  b", "\tx\u000By\f\r\nz ",
+                "caf\u00e9 na\u00efve", "a\ud83d\ude00b", "a\ud83db", "under_score 42"};
+        for (TokenizerMethod method : TokenizerMethod.values()) {
+            ITokenizer tok = new DefaultTokenizer(method);
+            for (String input : inputs) {
+                assertThat(tok.tokenize(input)).as(method + " " + input).containsExactly(input.split(method.getRegexp()));
+            }
+        }
+    }
+
+    @Test
+    public void tokens_utf8ShouldMatchTheDecodedText() {
+        String[] inputs = {"", " ", ",,,", " leading", "trailing  ", "a  b", "\tx\u000By\f\r\nz ",
+                "caf\u00e9 na\u00efve", "a\u00e9\u00e9b", "\u65e5\u672c \u8a9e", "a\ud83d\ude00b \u00e9", "under_score 42"};
+        for (TokenizerMethod method : TokenizerMethod.values()) {
+            DefaultTokenizer tok = new DefaultTokenizer(method);
+            for (String input : inputs) {
+                byte[] bytes = ("<<" + input + ">>").getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 4);
+                assertThat(tok.tokens(buffer).toArray()).as(method + " " + input).containsExactly(tok.tokenize(input));
+                assertThat(buffer.position()).isEqualTo(2);
+            }
+        }
+    }
+
+    @Test
+    public void tokens_utf8ShouldReplaceMalformedSequences() {
+        byte[] bytes = {'a', (byte) 0xc3, 'b', ' ', (byte) 0xe0, (byte) 0x80, 'c', (byte) 0xed, (byte) 0xa0, (byte) 0x80, ' ', (byte) 0xe2, (byte) 0x82};
+        String decoded = new String(bytes, StandardCharsets.UTF_8);
+        for (TokenizerMethod method : TokenizerMethod.values()) {
+            DefaultTokenizer tok = new DefaultTokenizer(method);
+            assertThat(tok.tokens(bytes, 0, bytes.length).toArray()).as(method.toString()).containsExactly(tok.tokenize(decoded));
+        }
+    }
+
+    @Test
+    public void tokens_shouldStreamTheTokensOfTokenize() {
+        ITokenizer tok = new DefaultTokenizer(TokenizerMethod.SPLIT_BY_WORD);
+        String input = ",My very,new-string!!";
+        TokenCursor tokens = TokenCursor.of(tok, new StringBuilder(input));
+        for (String expected : tok.tokenize(input)) {
+            assertThat(tokens.next()).isTrue();
+            assertThat(tokens.toString()).isEqualTo(expected);
+            assertThat(tokens.length()).isEqualTo(expected.length());
+        }
+        assertThat(tokens.next()).isFalse();
+    }
+
+    @Test
+    public void tokens_shouldAdaptArrayTokenizers() {
+        ITokenizer tok = new ITokenizer() {
+            public String[] tokenize(String input) {
+                return new String[]{"a", null, "b"};
+            }
+        };
+        assertThat(TokenCursor.of(tok, "ignored").toArray()).containsExactly("a", "b");
+    }
 }
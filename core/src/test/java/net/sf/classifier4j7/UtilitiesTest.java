@@ -50,6 +50,7 @@
  */
 package net.sf.classifier4j7;
 
+import net.sf.classifier4j7.tokenizer.AnalysisChain;
 import net.sf.classifier4j7.tokenizer.DefaultTokenizer;
 import org.junit.Test;
 
@@ -103,6 +104,12 @@ public class UtilitiesTest {
         assertEquals(2, result.get("again"));
     }
 
+    @Test
+    public void testGetWordFrequencyWithAnalysisChain() {
+        Map<String, Integer> result = Utilities.getWordFrequency(sentence, new AnalysisChain());
+        assertEquals(Utilities.getWordFrequency(sentence), result);
+    }
+
     @Test
     public void testGetUniqueWords() {
         Set<String> result = Utilities.getUniqueWords(null);
@@ -62,6 +62,11 @@ import net.sf.classifier4j7.tokenizer.TokenizerMethod;
 import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import static org.junit.Assert.*;
@@ -242,6 +247,25 @@ public class BayesianClassifierTest {
 		assertEquals(word, classifier.transformWord(word));		
 	}
 
+	@Test
+	public void transformWord_shouldBeUsedWhenTokenKeyLookupIsDisabled() throws Exception {
+		BayesianClassifier classifier = new BayesianClassifier(new SimpleWordsDataSource()) {
+			@Override
+			protected String transformWord(String word) {
+				String transformed = super.transformWord(word);
+				return "colour".equals(transformed) ? "color" : transformed;
+			}
+
+			@Override
+			protected boolean isTokenKeyLookupEnabled() {
+				return false;
+			}
+		};
+		classifier.teachMatch("color color");
+
+		assertTrue(classifier.classify("Colour") > IClassifier.NEUTRAL_PROBABILITY);
+	}
+
 	@Test
 	public void testCalculateOverallProbability() throws Exception {
 		double prob = 0.3d;
@@ -267,4 +291,43 @@ public class BayesianClassifierTest {
 		assertEquals(IClassifier.LOWER_BOUND, BayesianClassifier.normalizeSignificance(0.0001), 0);
 		assertEquals(IClassifier.UPPER_BOUND, BayesianClassifier.normalizeSignificance(1d), 0);
 	}
+
+	@Test
+	public void classify_readerShouldMatchString() throws Exception {
+		BayesianClassifier classifier = new BayesianClassifier(new SimpleWordsDataSource());
+		classifier.teachMatch(ICategorisedClassifier.DEFAULT_CATEGORY, new StringReader("buy cheap viagra now"));
+		classifier.teachNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, new StringReader("meeting notes for tomorrow"));
+
+		for (String input : new String[]{"cheap viagra", "meeting tomorrow", "nothing known"}) {
+			assertEquals(classifier.classify(input), classifier.classify(ICategorisedClassifier.DEFAULT_CATEGORY, new StringReader(input)), 0.0001d);
+		}
+		assertTrue(classifier.isMatch(ICategorisedClassifier.DEFAULT_CATEGORY, new StringReader("cheap viagra")));
+	}
+
+	@Test
+	public void classify_byteBufferShouldMatchString() throws Exception {
+		BayesianClassifier classifier = new BayesianClassifier(new SimpleWordsDataSource());
+		classifier.teachMatch("buy cheap viagra now");
+		classifier.teachNonMatch("meeting notes for tomorrow, caf\u00e9");
+
+		for (String input : new String[]{"Cheap viagra", "meeting at the caf\u00e9 tomorrow", "nothing known"}) {
+			ByteBuffer bytes = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+			assertEquals(classifier.classify(input), classifier.classify(ICategorisedClassifier.DEFAULT_CATEGORY, bytes), 0.0001d);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void classify_readerShouldThrowIOException() throws Exception {
+		Reader failing = new Reader() {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				throw new IOException("failed");
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		new BayesianClassifier().classify(ICategorisedClassifier.DEFAULT_CATEGORY, failing);
+	}
 }
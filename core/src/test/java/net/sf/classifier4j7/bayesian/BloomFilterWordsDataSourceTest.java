@@ -0,0 +1,83 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.worddatasource.BloomFilterWordsDataSource;
+import net.sf.classifier4j7.worddatasource.LogStructuredWordsDataSource;
+import net.sf.classifier4j7.worddatasource.WordsDataSourceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterWordsDataSourceTest {
+    private File dir;
+    private CountingWordsDataSource persistent;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("bloom").toFile();
+        persistent = new CountingWordsDataSource(dir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        persistent.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void getWordProbability_shouldSkipUnknownWords() throws Exception {
+        persistent.addMatch("known");
+        persistent.addNonMatch("category", "other");
+        BloomFilterWordsDataSource guard = new BloomFilterWordsDataSource(persistent, 1000);
+        guard.addMatch("added");
+
+        assertEquals(1, guard.getWordProbability("known").getMatchingCount());
+        assertEquals(1, guard.getWordProbability("category", "other").getNonMatchingCount());
+        assertEquals(1, guard.getWordProbability("added").getMatchingCount());
+        assertEquals(3, persistent.lookupCount);
+
+        for (int i = 0; i < 1000; i++) {
+            assertNull(guard.getWordProbability("unknown" + i));
+        }
+        assertNull(guard.getWordProbability("other"));
+        assertTrue(persistent.lookupCount < 3 + 50);
+        assertEquals(1001 - (persistent.lookupCount - 3), guard.getSkippedCount());
+    }
+
+    @Test
+    public void removeUnsignificantWordProbabilities_shouldUpdateCountingFilter() throws Exception {
+        persistent.addMatch("neutral");
+        persistent.addNonMatch("neutral");
+        persistent.addMatch("spam");
+        BloomFilterWordsDataSource guard = new BloomFilterWordsDataSource(persistent, 1000, 0.001, true);
+        guard.addMatch("spam");
+
+        guard.removeUnsignificantWordProbabilities();
+        persistent.lookupCount = 0;
+        assertNull(guard.getWordProbability("neutral"));
+        assertEquals(2, guard.getWordProbability("spam").getMatchingCount());
+        assertEquals(1, persistent.lookupCount);
+    }
+
+    private static class CountingWordsDataSource extends LogStructuredWordsDataSource {
+        private int lookupCount;
+
+        CountingWordsDataSource(File dir) throws WordsDataSourceException {
+            super(dir);
+        }
+
+        @Override
+        public synchronized WordProbability getWordProbability(String category, String word) {
+            lookupCount++;
+            return super.getWordProbability(category, word);
+        }
+    }
+}
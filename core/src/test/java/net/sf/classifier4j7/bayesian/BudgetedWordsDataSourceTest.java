@@ -0,0 +1,80 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.worddatasource.BudgetedWordsDataSource;
+import net.sf.classifier4j7.worddatasource.LogStructuredWordsDataSource;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class BudgetedWordsDataSourceTest {
+    private static final int ENTRY_COST = BudgetedWordsDataSource.ENTRY_OVERHEAD + 2 * "word00".length();
+    // the frequency sketch of a small budget has 4 rows of 256 counters
+    private static final int SKETCH_SIZE = 4 * 256;
+    private static final int BUDGET = 10 * ENTRY_COST + SKETCH_SIZE;
+
+    @Test
+    public void addMatch_shouldStayWithinBudget() throws Exception {
+        BudgetedWordsDataSource wordsDataSource = new BudgetedWordsDataSource(BUDGET);
+        assertEquals(SKETCH_SIZE, wordsDataSource.getUsedBytes());
+        for (int i = 0; i < 90; i++) {
+            wordsDataSource.addMatch("word" + (10 + i));
+            assertTrue(wordsDataSource.getUsedBytes() <= wordsDataSource.getBudget());
+        }
+        assertEquals(10, wordsDataSource.getSize());
+        // words seen once are not worth more than the ones in memory
+        assertEquals(0, wordsDataSource.getEvictionCount());
+        assertEquals(80, wordsDataSource.getRejectionCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_shouldRejectABudgetSmallerThanTheSketch() throws Exception {
+        new BudgetedWordsDataSource(SKETCH_SIZE);
+    }
+
+    @Test
+    public void admit_shouldKeepFrequentWords() throws Exception {
+        BudgetedWordsDataSource wordsDataSource = new BudgetedWordsDataSource(BUDGET);
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < 10; i++) {
+                wordsDataSource.addMatch("word" + (10 + i));
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            wordsDataSource.addMatch("rare" + (10 + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(5, wordsDataSource.getWordProbability("word" + (10 + i)).getMatchingCount());
+        }
+        assertNull(wordsDataSource.getWordProbability("rare50"));
+    }
+
+    @Test
+    public void evict_shouldSpillCounts() throws Exception {
+        File dir = Files.createTempDirectory("budget").toFile();
+        LogStructuredWordsDataSource spill = new LogStructuredWordsDataSource(dir);
+        try {
+            BudgetedWordsDataSource wordsDataSource = new BudgetedWordsDataSource(BUDGET, spill);
+            for (int n = 0; n < 3; n++) {
+                for (int i = 0; i < 50; i++) {
+                    wordsDataSource.addMatch("word" + (10 + i));
+                    wordsDataSource.addNonMatch("category", "word" + (10 + i));
+                }
+            }
+            assertEquals(10, wordsDataSource.getSize());
+            for (int i = 0; i < 50; i++) {
+                assertEquals(3, wordsDataSource.getWordProbability("word" + (10 + i)).getMatchingCount());
+                assertEquals(3, wordsDataSource.getWordProbability("category", "word" + (10 + i)).getNonMatchingCount());
+            }
+            assertEquals(100, wordsDataSource.getAll().size());
+        } finally {
+            spill.close();
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.worddatasource.CountMinSketchWordsDataSource;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CountMinSketchWordsDataSourceTest {
+    @Test
+    public void addMatch_shouldCountPerCategory() {
+        CountMinSketchWordsDataSource sketch = new CountMinSketchWordsDataSource(1024, 4, true);
+        sketch.addMatch("myWord");
+        sketch.addMatch("myWord");
+        sketch.addNonMatch("category", "myWord");
+
+        WordProbability wp = sketch.getWordProbability("myWord");
+        assertEquals(2, wp.getMatchingCount());
+        assertEquals(0, wp.getNonMatchingCount());
+        wp = sketch.getWordProbability("category", "myWord");
+        assertEquals("category", wp.getCategory());
+        assertEquals(0, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+        assertNull(sketch.getWordProbability("otherWord"));
+        assertEquals(3, sketch.getTotalCount());
+    }
+
+    @Test
+    public void getWordProbability_shouldNeverUnderestimate() {
+        for (boolean conservativeUpdate : new boolean[]{false, true}) {
+            CountMinSketchWordsDataSource sketch = new CountMinSketchWordsDataSource(64, 3, conservativeUpdate);
+            for (int i = 0; i < 1000; i++) {
+                for (int j = 0; j <= i % 10; j++) {
+                    sketch.addMatch("word" + i);
+                }
+            }
+            long overestimate = 0;
+            for (int i = 0; i < 1000; i++) {
+                long count = sketch.getWordProbability("word" + i).getMatchingCount();
+                assertTrue(count >= i % 10 + 1);
+                overestimate += count - (i % 10 + 1);
+            }
+            assertTrue(overestimate / 1000.0 <= sketch.getErrorBound());
+        }
+    }
+
+    @Test
+    public void getWordProbability_shouldNotShareCountersOfEqualHashCodes() {
+        CountMinSketchWordsDataSource sketch = CountMinSketchWordsDataSource.withErrorBound(0.0001, 0.0001);
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        for (int i = 0; i < 1000; i++) {
+            sketch.addMatch("Aa");
+        }
+        assertEquals(1000, sketch.getWordProbability("Aa").getMatchingCount());
+        assertNull(sketch.getWordProbability("BB"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void merge_shouldRejectDifferentSeeds() {
+        new CountMinSketchWordsDataSource(256, 4, false, 1).merge(new CountMinSketchWordsDataSource(256, 4, false, 2));
+    }
+
+    @Test
+    public void withErrorBound_shouldSizeTheSketch() {
+        CountMinSketchWordsDataSource sketch = CountMinSketchWordsDataSource.withErrorBound(0.01, 0.01);
+        assertEquals(272, sketch.getWidth());
+        assertEquals(5, sketch.getDepth());
+    }
+
+    @Test
+    public void merge_shouldSumCounts() {
+        CountMinSketchWordsDataSource sketch1 = new CountMinSketchWordsDataSource(256, 4, false);
+        CountMinSketchWordsDataSource sketch2 = new CountMinSketchWordsDataSource(256, 4, false);
+        sketch1.addMatch("myWord");
+        sketch2.addMatch("myWord");
+        sketch2.addNonMatch("myWord");
+
+        sketch1.merge(sketch2);
+        WordProbability wp = sketch1.getWordProbability("myWord");
+        assertEquals(2, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+        assertEquals(3, sketch1.getTotalCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void merge_shouldRejectDifferentSizes() {
+        new CountMinSketchWordsDataSource(256, 4, false).merge(new CountMinSketchWordsDataSource(128, 4, false));
+    }
+
+    @Test
+    public void toArray_shouldRoundTrip() {
+        CountMinSketchWordsDataSource sketch = new CountMinSketchWordsDataSource(128, 2, true, 42);
+        sketch.addMatch("myWord");
+        sketch.addNonMatch("category", "otherWord");
+
+        long[] array = sketch.toArray();
+        assertEquals(5 + 128 * 2 * 2, array.length);
+        CountMinSketchWordsDataSource copy = CountMinSketchWordsDataSource.fromArray(array);
+        assertArrayEquals(array, copy.toArray());
+        assertTrue(copy.isConservativeUpdate());
+        assertEquals(42, copy.getSeed());
+        assertEquals(1, copy.getWordProbability("category", "otherWord").getNonMatchingCount());
+    }
+}
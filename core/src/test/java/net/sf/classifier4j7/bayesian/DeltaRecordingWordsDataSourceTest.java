@@ -0,0 +1,157 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.worddatasource.DeltaImporter;
+import net.sf.classifier4j7.worddatasource.DeltaRecordingWordsDataSource;
+import net.sf.classifier4j7.worddatasource.LogStructuredWordsDataSource;
+import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
+import net.sf.classifier4j7.worddatasource.WordsDataSourceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class DeltaRecordingWordsDataSourceTest {
+    private File dir;
+    private DeltaRecordingWordsDataSource master;
+    private SimpleWordsDataSource replica;
+    private DeltaImporter importer;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("deltas").toFile();
+        master = new DeltaRecordingWordsDataSource(new SimpleWordsDataSource());
+        replica = new SimpleWordsDataSource();
+        importer = new DeltaImporter(replica);
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void catchUp_shouldApplyDeltasInOrder() throws Exception {
+        master.addMatch("word1");
+        master.addMatch("word1");
+        master.addNonMatch("word2");
+        assertEquals(2, master.getChangeCount());
+        assertEquals(1, master.exportDelta(dir));
+        assertEquals(0, master.getChangeCount());
+        assertEquals(-1, master.exportDelta(dir));
+
+        master.addNonMatch("word1");
+        assertEquals(2, master.exportDelta(dir));
+
+        assertEquals(2, importer.catchUp(dir));
+        assertEquals(2, importer.getLastAppliedSequence());
+        assertEquals(2, replica.getWordProbability("word1").getMatchingCount());
+        assertEquals(1, replica.getWordProbability("word1").getNonMatchingCount());
+        assertEquals(1, replica.getWordProbability("word2").getNonMatchingCount());
+    }
+
+    @Test
+    public void apply_shouldBeIdempotent() throws Exception {
+        master.addMatch("word1");
+        master.exportDelta(dir);
+
+        File delta = new File(dir, "delta-1.bin");
+        assertTrue(importer.apply(delta));
+        assertFalse(importer.apply(delta));
+        assertEquals(0, importer.catchUp(dir));
+        assertEquals(1, replica.getWordProbability("word1").getMatchingCount());
+    }
+
+    @Test
+    public void catchUp_shouldResumeFromCheckpoint() throws Exception {
+        File checkpoint = new File(dir, "checkpoint.bin");
+        master.addMatch("word1");
+        master.addMatch("word1");
+        master.addNonMatch("word1");
+        master.exportDelta(dir);
+        DeltaImporter importer = new DeltaImporter(replica, checkpoint);
+        assertEquals(0, importer.getLastAppliedSequence());
+        assertEquals(1, importer.catchUp(dir));
+
+        master.addMatch("word2");
+        master.exportDelta(dir);
+        importer = new DeltaImporter(replica, checkpoint);
+        assertEquals(1, importer.getLastAppliedSequence());
+        assertEquals(1, importer.catchUp(dir));
+        assertEquals(2, replica.getWordProbability("word1").getMatchingCount());
+        assertEquals(1, replica.getWordProbability("word1").getNonMatchingCount());
+        assertEquals(1, replica.getWordProbability("word2").getMatchingCount());
+        assertEquals(2, new DeltaImporter(replica, checkpoint).getLastAppliedSequence());
+    }
+
+    @Test
+    public void catchUp_shouldResumeFromTheSequenceStoredByTheReplica() throws Exception {
+        File storeDir = Files.createTempDirectory("replica").toFile();
+        try {
+            master.addMatch("word1");
+            master.addMatch("word1");
+            master.addNonMatch("word1");
+            master.exportDelta(dir);
+            try (LogStructuredWordsDataSource store = new LogStructuredWordsDataSource(storeDir)) {
+                DeltaImporter importer = new DeltaImporter(store);
+                assertEquals(0, importer.getLastAppliedSequence());
+                assertEquals(1, importer.catchUp(dir));
+            }
+
+            master.addMatch("word2");
+            master.exportDelta(dir);
+            try (LogStructuredWordsDataSource store = new LogStructuredWordsDataSource(storeDir)) {
+                DeltaImporter importer = new DeltaImporter(store);
+                assertEquals(1, importer.getLastAppliedSequence());
+                assertEquals(1, importer.catchUp(dir));
+                assertEquals(2, store.getWordProbability("word1").getMatchingCount());
+                assertEquals(1, store.getWordProbability("word1").getNonMatchingCount());
+                assertEquals(1, store.getWordProbability("word2").getMatchingCount());
+                assertEquals(2, store.getLastAppliedSequence());
+            }
+        } finally {
+            for (File file : storeDir.listFiles()) {
+                file.delete();
+            }
+            storeDir.delete();
+        }
+    }
+
+    @Test(expected = WordsDataSourceException.class)
+    public void apply_shouldRejectMissingDelta() throws Exception {
+        master.addMatch("word1");
+        master.exportDelta(dir);
+        master.addMatch("word1");
+        master.exportDelta(dir);
+
+        importer.apply(new File(dir, "delta-2.bin"));
+    }
+
+    @Test
+    public void apply_shouldRejectCorruptedDelta() throws Exception {
+        master.addMatch("word1");
+        master.exportDelta(dir);
+        File delta = new File(dir, "delta-1.bin");
+        try (RandomAccessFile file = new RandomAccessFile(delta, "rw")) {
+            file.seek(file.length() - 12);
+            int b = file.read();
+            file.seek(file.length() - 12);
+            file.write(b ^ 1);
+        }
+
+        try {
+            importer.apply(delta);
+            fail();
+        } catch (WordsDataSourceException e) {
+            assertNull(replica.getWordProbability("word1"));
+            assertEquals(0, importer.getLastAppliedSequence());
+        }
+    }
+}
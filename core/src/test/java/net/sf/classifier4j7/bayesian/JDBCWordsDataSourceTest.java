@@ -65,6 +65,21 @@ public class JDBCWordsDataSourceTest {
         verifyCount("cat", "word", 1, 3);
     }
 
+    @Test
+    public void addCounts_shouldAddAllCountsAtOnce() throws Exception {
+        dataSource.addCounts("cat", "word", 3, 0);
+        dataSource.addCounts("cat", "word", 2, 5);
+        verifyCount("cat", "word", 5, 5);
+    }
+
+    @Test
+    public void getAll_shouldReturnAllWords() throws Exception {
+        dataSource.addMatch("cat", "word");
+        dataSource.addNonMatch("cat", "word");
+        dataSource.addNonMatch("other", "word");
+        assertEquals(2, dataSource.getAll().size());
+    }
+
     public void verifyCount(String category, String word, int matchCount, int nonMatchCount) throws SQLException {
         Connection connection = jdbcDataSource.getConnection();
         Statement stmt = connection.createStatement();
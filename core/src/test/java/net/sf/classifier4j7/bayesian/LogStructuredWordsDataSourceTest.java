@@ -0,0 +1,210 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.worddatasource.LogStructuredWordsDataSource;
+import net.sf.classifier4j7.worddatasource.WordsDataSourceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LogStructuredWordsDataSourceTest {
+    private File dir;
+    private LogStructuredWordsDataSource wordsDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("lsm").toFile();
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wordsDataSource.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void addMatch_shouldCountPerCategory() throws Exception {
+        wordsDataSource.addMatch("myWord");
+        wordsDataSource.addMatch("myWord");
+        wordsDataSource.addNonMatch("category", "myWord");
+
+        WordProbability wp = wordsDataSource.getWordProbability("myWord");
+        assertEquals(2, wp.getMatchingCount());
+        assertEquals(0, wp.getNonMatchingCount());
+        wp = wordsDataSource.getWordProbability("category", "myWord");
+        assertEquals("category", wp.getCategory());
+        assertEquals(0, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+        assertNull(wordsDataSource.getWordProbability("otherWord"));
+        assertEquals(2, wordsDataSource.getAll().size());
+    }
+
+    @Test
+    public void reopen_shouldReplaySegments() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            wordsDataSource.addMatch("word" + (i % 10));
+        }
+        wordsDataSource.close();
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+        assertEquals(10, wordsDataSource.getAll().size());
+        assertEquals(10, wordsDataSource.getWordProbability("word3").getMatchingCount());
+    }
+
+    @Test
+    public void addMatch_shouldNotWriteAHalfRecordForAWordTooLong() throws Exception {
+        wordsDataSource.addMatch("before");
+        char[] longWord = new char[70000];
+        Arrays.fill(longWord, 'x');
+        try {
+            wordsDataSource.addMatch(new String(longWord));
+            fail();
+        } catch (WordsDataSourceException e) {
+            // expected
+        }
+        wordsDataSource.addMatch("after");
+        wordsDataSource.close();
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+        assertEquals(2, wordsDataSource.getAll().size());
+        assertEquals(1, wordsDataSource.getWordProbability("after").getMatchingCount());
+    }
+
+    @Test
+    public void compact_shouldMergeSegmentsIntoRun() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            wordsDataSource.addMatch("word" + (i % 10));
+        }
+        wordsDataSource.compact();
+        for (int i = 0; i < 100; i++) {
+            wordsDataSource.addNonMatch("word" + (i % 20));
+        }
+        wordsDataSource.compact();
+        wordsDataSource.close();
+
+        assertEquals(1, dir.listFiles().length - countSegments());
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+        assertEquals(20, wordsDataSource.getAll().size());
+        WordProbability wp = wordsDataSource.getWordProbability("word5");
+        assertEquals(10, wp.getMatchingCount());
+        assertEquals(5, wp.getNonMatchingCount());
+        wp = wordsDataSource.getWordProbability("word15");
+        assertEquals(0, wp.getMatchingCount());
+        assertEquals(5, wp.getNonMatchingCount());
+    }
+
+    @Test
+    public void backgroundCompaction_shouldKeepCounts() throws Exception {
+        wordsDataSource.close();
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 64, 10, 2);
+        for (int i = 0; i < 2000; i++) {
+            wordsDataSource.addMatch("category" + (i % 3), "word" + (i % 50));
+        }
+        wordsDataSource.close();
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 64, 10, 2);
+        assertEquals(150, wordsDataSource.getAll().size());
+        long total = 0;
+        for (WordProbability wp : wordsDataSource.getAll()) {
+            total += wp.getMatchingCount();
+        }
+        assertEquals(2000, total);
+    }
+
+    @Test
+    public void removeUnsignificantWordProbabilities_shouldSurviveCompaction() throws Exception {
+        wordsDataSource.addMatch("a");
+        wordsDataSource.addMatch("neutral");
+        wordsDataSource.addNonMatch("neutral");
+        wordsDataSource.addMatch("spam");
+        wordsDataSource.removeUnsignificantWordProbabilities();
+        wordsDataSource.addMatch("neutral");
+        wordsDataSource.compact();
+        wordsDataSource.close();
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+        assertNull(wordsDataSource.getWordProbability("a"));
+        assertEquals(1, wordsDataSource.getWordProbability("neutral").getMatchingCount());
+        assertEquals(0, wordsDataSource.getWordProbability("neutral").getNonMatchingCount());
+        assertEquals(1, wordsDataSource.getWordProbability("spam").getMatchingCount());
+    }
+
+    @Test
+    public void reopen_shouldIgnoreTruncatedRecord() throws Exception {
+        wordsDataSource.addMatch("myWord");
+        wordsDataSource.addMatch("otherWord");
+        wordsDataSource.close();
+
+        File segment = new File(dir, "segment-0.log");
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+        assertEquals(1, wordsDataSource.getWordProbability("myWord").getMatchingCount());
+        assertNull(wordsDataSource.getWordProbability("otherWord"));
+    }
+
+    @Test
+    public void applyDelta_shouldKeepTheSequenceAcrossCompactions() throws Exception {
+        wordsDataSource.applyDelta(1, Arrays.asList(change("category", "myWord", 2, 1), change("category", "otherWord", 0, 3)));
+        for (int i = 0; i < 100; i++) {
+            wordsDataSource.addMatch("word" + i);
+        }
+        wordsDataSource.applyDelta(2, Arrays.asList(change("category", "myWord", 1, 0)));
+        wordsDataSource.compact();
+        wordsDataSource.close();
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+        assertEquals(2, wordsDataSource.getLastAppliedSequence());
+        assertEquals(3, wordsDataSource.getWordProbability("category", "myWord").getMatchingCount());
+        assertEquals(1, wordsDataSource.getWordProbability("category", "myWord").getNonMatchingCount());
+        assertEquals(3, wordsDataSource.getWordProbability("category", "otherWord").getNonMatchingCount());
+    }
+
+    @Test
+    public void applyDelta_shouldDropADeltaTruncatedByACrash() throws Exception {
+        wordsDataSource.applyDelta(1, Arrays.asList(change("category", "myWord", 1, 0)));
+        wordsDataSource.applyDelta(2, Arrays.asList(change("category", "myWord", 1, 0), change("category", "otherWord", 1, 0)));
+        wordsDataSource.close();
+
+        File segment = new File(dir, "segment-0.log");
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        wordsDataSource = new LogStructuredWordsDataSource(dir, 256, 10, 100);
+        assertEquals(1, wordsDataSource.getLastAppliedSequence());
+        assertEquals(1, wordsDataSource.getWordProbability("category", "myWord").getMatchingCount());
+        assertNull(wordsDataSource.getWordProbability("category", "otherWord"));
+    }
+
+    private static WordProbability change(String category, String word, long matchingCount, long nonMatchingCount) {
+        WordProbability wp = new WordProbability(category, word);
+        wp.setMatchingCount(matchingCount);
+        wp.setNonMatchingCount(nonMatchingCount);
+        return wp;
+    }
+
+    private int countSegments() {
+        int count = 0;
+        for (File file : dir.listFiles()) {
+            if (file.getName().startsWith("segment-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.worddatasource.IWordsDataSource;
+import net.sf.classifier4j7.worddatasource.ShardedWordsDataSource;
+import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class ShardedWordsDataSourceTest {
+    private List<IWordsDataSource> shards;
+    private ExecutorService executor;
+    private ShardedWordsDataSource wordsDataSource;
+
+    @Before
+    public void setUp() {
+        shards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            shards.add(new SimpleWordsDataSource());
+        }
+        executor = Executors.newFixedThreadPool(3);
+        wordsDataSource = new ShardedWordsDataSource(shards, executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void addMatch_shouldSpreadWordsAcrossShards() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            wordsDataSource.addMatch("word" + i);
+        }
+        wordsDataSource.addNonMatch("word1");
+
+        WordProbability wp = wordsDataSource.getWordProbability("word1");
+        assertEquals(1, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+        assertEquals(100, wordsDataSource.getAll().size());
+        for (IWordsDataSource shard : shards) {
+            assertTrue(shard.getAll().size() < 100);
+        }
+    }
+
+    @Test
+    public void getWordProbabilities_shouldKeepWordOrder() throws Exception {
+        String[] words = new String[50];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "word" + i;
+            if (i % 2 == 0) {
+                wordsDataSource.addMatch(words[i]);
+            }
+        }
+
+        WordProbability[] wps = wordsDataSource.getWordProbabilities("DEFAULT", words);
+        for (int i = 0; i < words.length; i++) {
+            if (i % 2 == 0) {
+                assertEquals(words[i], wps[i].getWord());
+            } else {
+                assertNull(wps[i]);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addMatch_shouldRejectCategoriesOnSimpleShards() throws Exception {
+        wordsDataSource.addMatch("category", "word");
+    }
+
+    @Test
+    public void classify_shouldUseShards() throws Exception {
+        BayesianClassifier classifier = new BayesianClassifier(wordsDataSource);
+        classifier.teachMatch("buy cheap viagra now");
+        classifier.teachNonMatch("meeting notes for tomorrow");
+
+        assertTrue(classifier.classify("cheap viagra") > 0.9);
+        assertTrue(classifier.classify("meeting tomorrow") < 0.1);
+    }
+}
@@ -51,8 +51,11 @@
 
 package net.sf.classifier4j7.bayesian;
 
+import net.sf.classifier4j7.ICategorisedClassifier;
 import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.tokenizer.TokenKey;
 import net.sf.classifier4j7.worddatasource.IWordsDataSource;
+import net.sf.classifier4j7.worddatasource.PruningPolicy;
 import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
 import org.junit.Before;
 import org.junit.Test;
@@ -151,4 +154,61 @@ public class SimpleWordsDataSourceTest {
 		assertNotNull(wp2);
 		assertEquals(wp, wp2);
 	}
+
+	@Test
+	public void testIncrementalPruning() throws Exception {
+		SimpleWordsDataSource simpleWordsDataSource = new SimpleWordsDataSource();
+		simpleWordsDataSource.setIncrementalPruning(1, 10);
+		simpleWordsDataSource.addMatch("a");
+		assertNull(simpleWordsDataSource.getWordProbability("a"));
+
+		simpleWordsDataSource.addMatch("spam");
+		simpleWordsDataSource.addMatch("neutral");
+		assertNotNull(simpleWordsDataSource.getWordProbability("neutral"));
+		simpleWordsDataSource.addNonMatch("neutral");
+		assertNull(simpleWordsDataSource.getWordProbability("neutral"));
+
+		assertEquals(1, simpleWordsDataSource.getAll().size());
+		assertEquals(0, simpleWordsDataSource.pruneSlice(10));
+	}
+
+	@Test
+	public void testPruningPolicyMinCount() throws Exception {
+		SimpleWordsDataSource simpleWordsDataSource = new SimpleWordsDataSource();
+		simpleWordsDataSource.setPruningPolicy(new PruningPolicy(2, 0.4, 0.6, 3));
+		simpleWordsDataSource.addMatch("young");
+		simpleWordsDataSource.addNonMatch("young");
+		simpleWordsDataSource.addMatch("old");
+		simpleWordsDataSource.addNonMatch("old");
+		simpleWordsDataSource.addMatch("old");
+		simpleWordsDataSource.addNonMatch("old");
+
+		simpleWordsDataSource.removeUnsignificantWordProbabilities();
+		assertNotNull(simpleWordsDataSource.getWordProbability("young"));
+		assertNull(simpleWordsDataSource.getWordProbability("old"));
+	}
+
+	@Test
+	public void testGetWordProbabilityByTokenKey() throws Exception {
+		SimpleWordsDataSource simpleWordsDataSource = new SimpleWordsDataSource();
+		simpleWordsDataSource.addMatch("viagra");
+		TokenKey key = new TokenKey();
+
+		assertTrue(key.set("Buy VIAGRA now", 4, 10, true));
+		assertEquals("viagra".hashCode(), key.hashCode());
+		assertSame(simpleWordsDataSource.getWordProbability("viagra"), simpleWordsDataSource.getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, key));
+
+		assertTrue(key.set("Buy VIAGRA now", 4, 10, false));
+		assertNull(simpleWordsDataSource.getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, key));
+		assertFalse(key.set("na\u00EFve", 0, 5, true));
+	}
+
+	@Test
+	public void testGetWordProbabilityOfNull() throws Exception {
+		SimpleWordsDataSource simpleWordsDataSource = new SimpleWordsDataSource();
+		simpleWordsDataSource.addMatch("viagra");
+
+		assertNull(simpleWordsDataSource.getWordProbability(null));
+		assertNull(simpleWordsDataSource.getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, null));
+	}
 }
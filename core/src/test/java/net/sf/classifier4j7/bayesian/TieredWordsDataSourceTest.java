@@ -0,0 +1,111 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.worddatasource.LogStructuredWordsDataSource;
+import net.sf.classifier4j7.worddatasource.ShardedWordsDataSource;
+import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
+import net.sf.classifier4j7.worddatasource.TieredWordsDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TieredWordsDataSourceTest {
+    private File dir;
+    private LogStructuredWordsDataSource persistentTier;
+    private TieredWordsDataSource wordsDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("tiered").toFile();
+        persistentTier = new LogStructuredWordsDataSource(dir);
+        wordsDataSource = new TieredWordsDataSource(persistentTier, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        persistentTier.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void getWordProbability_shouldPromoteOnMiss() throws Exception {
+        wordsDataSource.addMatch("myWord");
+        assertEquals(0, wordsDataSource.getMemoryTierSize());
+
+        assertEquals(1, wordsDataSource.getWordProbability("myWord").getMatchingCount());
+        assertEquals(1, wordsDataSource.getMissCount());
+        assertEquals(1, wordsDataSource.getMemoryTierSize());
+
+        assertEquals(1, wordsDataSource.getWordProbability("myWord").getMatchingCount());
+        assertEquals(1, wordsDataSource.getHitCount());
+        assertNull(wordsDataSource.getWordProbability("otherWord"));
+    }
+
+    @Test
+    public void addMatch_shouldWriteThrough() throws Exception {
+        wordsDataSource.addMatch("category", "myWord");
+        wordsDataSource.getWordProbability("category", "myWord");
+        wordsDataSource.addNonMatch("category", "myWord");
+
+        WordProbability wp = wordsDataSource.getWordProbability("category", "myWord");
+        assertEquals(1, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+        wp = persistentTier.getWordProbability("category", "myWord");
+        assertEquals(1, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+    }
+
+    @Test
+    public void addMatch_shouldNotCountTwiceWhenThePersistentTierReturnsLiveObjects() throws Exception {
+        List<SimpleWordsDataSource> shards = Arrays.asList(new SimpleWordsDataSource(), new SimpleWordsDataSource());
+        ShardedWordsDataSource shardedTier = new ShardedWordsDataSource(shards);
+        TieredWordsDataSource tiered = new TieredWordsDataSource(shardedTier, 2);
+        tiered.addMatch("myWord");
+        WordProbability promoted = tiered.getWordProbability("myWord");
+        tiered.addMatch("myWord");
+        tiered.addNonMatch("myWord");
+
+        WordProbability wp = tiered.getWordProbability("myWord");
+        assertEquals(2, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+        assertEquals(2, shardedTier.getWordProbability("myWord").getMatchingCount());
+        assertEquals(1, shardedTier.getWordProbability("myWord").getNonMatchingCount());
+
+        promoted.setMatchingCount(100);
+        wp.setMatchingCount(100);
+        assertEquals(2, tiered.getWordProbability("myWord").getMatchingCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addMatch_shouldRejectNullCategory() throws Exception {
+        wordsDataSource.addMatch(null, "myWord");
+    }
+
+    @Test
+    public void promote_shouldNotEvictMoreFrequentWords() throws Exception {
+        wordsDataSource.addMatch("frequent1");
+        wordsDataSource.addMatch("frequent2");
+        wordsDataSource.addMatch("rare");
+        for (int i = 0; i < 5; i++) {
+            wordsDataSource.getWordProbability("frequent1");
+            wordsDataSource.getWordProbability("frequent2");
+        }
+        long hits = wordsDataSource.getHitCount();
+
+        wordsDataSource.getWordProbability("rare");
+        wordsDataSource.getWordProbability("frequent1");
+        wordsDataSource.getWordProbability("frequent2");
+        assertEquals(hits + 2, wordsDataSource.getHitCount());
+        assertEquals(2, wordsDataSource.getMemoryTierSize());
+    }
+}
@@ -161,4 +161,30 @@ public class WordProbabilityTest {
             assertTrue(true);
         }
     }
+
+    @Test
+    public void testCountsBeyondInteger() {
+        WordProbability wp = new WordProbability("aWord", Integer.MAX_VALUE, 0);
+        wp.registerMatch();
+        wp.registerNonMatch();
+        assertEquals(Integer.MAX_VALUE + 1L, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+
+        wp.setMatchingCount(3);
+        assertEquals(3, wp.getMatchingCount());
+        assertEquals(0.75, wp.getProbability(), 0);
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        WordProbability wp = new WordProbability(new String("category"), "aWord");
+        WordProbability wp2 = new WordProbability(new String("category"), "aWord");
+        assertEquals(wp, wp2);
+        assertEquals(wp.hashCode(), wp2.hashCode());
+        assertEquals(0, wp.compareTo(wp2));
+
+        wp2.setCategory("other");
+        assertFalse(wp.equals(wp2));
+        assertTrue(wp.compareTo(wp2) < 0);
+    }
 }
@@ -0,0 +1,129 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.worddatasource.IWordsDataSource;
+import net.sf.classifier4j7.worddatasource.LogStructuredWordsDataSource;
+import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
+import net.sf.classifier4j7.worddatasource.WordsDataSourceMerger;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class WordsDataSourceMergerTest {
+    @Test
+    public void merge_shouldSumCounts() throws Exception {
+        SimpleWordsDataSource ds1 = new SimpleWordsDataSource();
+        SimpleWordsDataSource ds2 = new SimpleWordsDataSource();
+        for (int i = 0; i < 100; i++) {
+            ds1.addMatch("word" + i);
+            ds2.addNonMatch("word" + (i + 50));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<String, WordProbability> merged = byWord(WordsDataSourceMerger.merge(Arrays.asList(ds1, ds2), executor));
+            assertEquals(150, merged.size());
+            assertEquals(1, merged.get("word10").getMatchingCount());
+            assertEquals(0, merged.get("word10").getNonMatchingCount());
+            assertEquals(1, merged.get("word70").getMatchingCount());
+            assertEquals(1, merged.get("word70").getNonMatchingCount());
+            assertEquals(0, merged.get("word120").getMatchingCount());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, ds1.getWordProbability("word70").getMatchingCount());
+        assertEquals(0, ds1.getWordProbability("word70").getNonMatchingCount());
+    }
+
+    @Test
+    public void mergeSorted_shouldStreamInOrder() {
+        TreeSet<WordProbability> s1 = new TreeSet<>();
+        TreeSet<WordProbability> s2 = new TreeSet<>();
+        s1.add(wp("A", "apple", 1, 0));
+        s1.add(wp("B", "apple", 2, 0));
+        s2.add(wp("A", "apple", 0, 3));
+        s2.add(wp("A", "pear", 1, 1));
+
+        List<Iterator<WordProbability>> sources = new ArrayList<>();
+        sources.add(s1.iterator());
+        sources.add(s2.iterator());
+        Iterator<WordProbability> it = WordsDataSourceMerger.mergeSorted(sources);
+
+        WordProbability wp = it.next();
+        assertEquals("A", wp.getCategory());
+        assertEquals("apple", wp.getWord());
+        assertEquals(1, wp.getMatchingCount());
+        assertEquals(3, wp.getNonMatchingCount());
+        assertEquals("pear", it.next().getWord());
+        wp = it.next();
+        assertEquals("B", wp.getCategory());
+        assertEquals(2, wp.getMatchingCount());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void mergeIterator_shouldStreamSortedSources() throws Exception {
+        File dir1 = Files.createTempDirectory("merge").toFile();
+        File dir2 = Files.createTempDirectory("merge").toFile();
+        LogStructuredWordsDataSource ds1 = new LogStructuredWordsDataSource(dir1);
+        LogStructuredWordsDataSource ds2 = new LogStructuredWordsDataSource(dir2);
+        try {
+            ds1.addMatch("B", "apple");
+            ds1.addMatch("A", "\ud83d\ude00");
+            ds1.addMatch("A", "pear");
+            ds2.addNonMatch("A", "pear");
+            ds2.addMatch("A", "\ue000");
+            ds2.addMatch("A", "apple");
+
+            Iterator<WordProbability> it = WordsDataSourceMerger.mergeIterator(Arrays.asList(ds1, ds2), null);
+            assertFalse(it instanceof ListIterator);
+            List<String> words = new ArrayList<>();
+            while (it.hasNext()) {
+                WordProbability wp = it.next();
+                words.add(wp.getCategory() + "/" + wp.getWord());
+                if ("pear".equals(wp.getWord())) {
+                    assertEquals(1, wp.getMatchingCount());
+                    assertEquals(1, wp.getNonMatchingCount());
+                }
+            }
+            assertEquals(Arrays.asList("A/apple", "A/pear", "A/\ue000", "A/\ud83d\ude00", "B/apple"), words);
+        } finally {
+            ds1.close();
+            ds2.close();
+            for (File dir : new File[]{dir1, dir2}) {
+                for (File file : dir.listFiles()) {
+                    file.delete();
+                }
+                dir.delete();
+            }
+        }
+    }
+
+    private static WordProbability wp(String category, String word, long matchingCount, long nonMatchingCount) {
+        WordProbability wp = new WordProbability(word, matchingCount, nonMatchingCount);
+        wp.setCategory(category);
+        return wp;
+    }
+
+    private static Map<String, WordProbability> byWord(Collection<WordProbability> wps) {
+        Map<String, WordProbability> map = new HashMap<>();
+        for (WordProbability wp : wps) {
+            map.put(wp.getWord(), wp);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,67 @@
+package net.sf.classifier4j7.tokenizer;
+
+import net.sf.classifier4j7.bayesian.BayesianClassifier;
+import net.sf.classifier4j7.stopword.DefaultStopWordsProvider;
+import net.sf.classifier4j7.worddatasource.SimpleWordsDataSource;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class AnalysisChainTest {
+
+    @Test
+    public void tokenize_shouldFoldCaseAndFilterStopWords() {
+        AnalysisChain chain = new AnalysisChain();
+        assertThat(chain.tokenize("The Quick,, BROWN fox Is here")).containsExactly("quick", "brown", "fox", "here");
+    }
+
+    @Test
+    public void tokenize_shouldReturnNGramsOfTheTerms() {
+        AnalysisChain chain = new AnalysisChain(new DefaultTokenizer(), false, new DefaultStopWordsProvider(), 3);
+        assertThat(chain.tokenize("Buy the cheap pills now")).containsExactly(
+                "Buy", "cheap", "Buy cheap", "pills", "cheap pills", "Buy cheap pills", "now", "pills now", "cheap pills now");
+    }
+
+    @Test
+    public void tokens_shouldReuseTheCursorOfTheThread() {
+        AnalysisChain chain = new AnalysisChain();
+        TokenCursor first = chain.tokens("one");
+        assertThat(chain.tokens("two")).isSameAs(first);
+        assertThat(first.toArray()).containsExactly("two");
+    }
+
+    @Test
+    public void tokens_shouldNotKeepTheChainOrTheInput() throws Exception {
+        AnalysisChain chain = new AnalysisChain();
+        StringBuilder input = new StringBuilder("a document which is dropped once tokenized");
+        chain.tokenize(input.toString());
+        chain.tokens(input).toArray();
+        WeakReference<AnalysisChain> chainReference = new WeakReference<>(chain);
+        WeakReference<StringBuilder> inputReference = new WeakReference<>(input);
+        chain = null;
+        input = null;
+
+        for (int i = 0; i < 10 && (chainReference.get() != null || inputReference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(chainReference.get()).isNull();
+        assertThat((Object) inputReference.get()).isNull();
+    }
+
+    @Test
+    public void classify_shouldUseTheTermsOfTheChain() throws Exception {
+        BayesianClassifier classifier = new BayesianClassifier(new SimpleWordsDataSource(), new AnalysisChain());
+        classifier.teachMatch("Buy CHEAP viagra now");
+        classifier.teachNonMatch("Meeting notes for tomorrow");
+
+        assertNotNull(classifier.getWordsDataSource().getWordProbability("cheap"));
+        assertNull(classifier.getWordsDataSource().getWordProbability("for"));
+        assertThat(classifier.classify("cheap VIAGRA")).isGreaterThan(0.9);
+        assertThat(classifier.classify("meeting tomorrow")).isLessThan(0.1);
+    }
+}
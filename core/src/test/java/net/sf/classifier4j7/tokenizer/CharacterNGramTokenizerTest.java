@@ -0,0 +1,34 @@
+package net.sf.classifier4j7.tokenizer;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class CharacterNGramTokenizerTest {
+
+    @Test
+    public void tokenize_shouldPadWords() {
+        ITokenizer tokenizer = new CharacterNGramTokenizer(3);
+        assertThat(tokenizer.tokenize("John Al")).containsExactly(" Jo", "Joh", "ohn", "hn ", " Al", "Al ");
+    }
+
+    @Test
+    public void tokenize_shouldReturnRangesOfLengths() {
+        ITokenizer tokenizer = new CharacterNGramTokenizer(1, 2, false);
+        assertThat(tokenizer.tokenize("abc, d")).containsExactly("a", "ab", "b", "bc", "c", "d");
+    }
+
+    @Test
+    public void hashShingles_shouldHashTheShingles() {
+        CharacterNGramTokenizer tokenizer = new CharacterNGramTokenizer(2, 3, true);
+        String[] shingles = tokenizer.tokenize("Mary Jane");
+        int[] hashes = new int[4];
+
+        assertEquals(shingles.length, tokenizer.hashShingles("Mary Jane", hashes));
+        for (int i = 0; i < hashes.length; i++) {
+            assertEquals(CharacterNGramTokenizer.hash(shingles[i], 0, shingles[i].length()), hashes[i]);
+        }
+        assertThat(CharacterNGramTokenizer.hash(" Ma", 0, 3)).isNotEqualTo(CharacterNGramTokenizer.hash(" Ja", 0, 3));
+    }
+}
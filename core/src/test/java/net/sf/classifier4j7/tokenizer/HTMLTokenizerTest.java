@@ -0,0 +1,42 @@
+package net.sf.classifier4j7.tokenizer;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HTMLTokenizerTest {
+    private final HTMLTokenizer tokenizer = new HTMLTokenizer();
+
+    @Test
+    public void tokenize_shouldSkipTagsScriptsAndStyles() {
+        String html = "<html><head><style type=\"text/css\">p { color: red }</style>"
+                + "<script>if (a < b && c > d) { document.write('</p>') }</SCRIPT></head>"
+                + "<body><!-- hidden <b>comment</b> --><p title=\"a > b\">Hello <b>wor</b>ld</p><p>again</p></body></html>";
+        assertThat(tokenizer.tokenize(html)).containsExactly("Hello", "world", "again");
+    }
+
+    @Test
+    public void tokenize_shouldDecodeEntities() {
+        HTMLTokenizer whitespaceTokenizer = new HTMLTokenizer(TokenizerMethod.SPLIT_ON_WHITESPACE);
+        assertThat(whitespaceTokenizer.tokenize("caf&#233; AT&amp;T&nbsp;rocks &#x41;BC &unknown;x"))
+                .containsExactly("caf\u00E9", "AT&T", "rocks", "ABC", "x");
+        assertThat(whitespaceTokenizer.tokenize("fish & chips &amp chips a < b")).containsExactly("fish", "&", "chips", "&amp", "chips", "a", "<", "b");
+    }
+
+    @Test
+    public void tokens_shouldReadFromReader() {
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            html.append("<td>word").append(i).append("</td>");
+        }
+        TokenCursor tokens = tokenizer.tokens(new StringReader(html.toString()));
+        int count = 0;
+        while (tokens.next()) {
+            assertThat(tokens.toString()).isEqualTo("word" + count);
+            count++;
+        }
+        assertThat(count).isEqualTo(5000);
+    }
+}
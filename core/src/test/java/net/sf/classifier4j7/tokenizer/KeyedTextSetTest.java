@@ -0,0 +1,32 @@
+package net.sf.classifier4j7.tokenizer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeyedTextSetTest {
+
+    @Test
+    public void add_shouldKeepTextsWhoseKeysCollide() {
+        KeyedTextSet set = new KeyedTextSet();
+        assertTrue(set.add(42, "to be"));
+        assertTrue(set.add(42, "or not"));
+        assertTrue(set.add(42, "to b"));
+        assertFalse(set.add(42, new StringBuilder("to be")));
+        assertFalse(set.add(42, "or not"));
+        assertTrue(set.add(7, "to be"));
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    public void add_shouldGrow() {
+        KeyedTextSet set = new KeyedTextSet();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(set.add(i % 3, "word" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertFalse(set.add(i % 3, "word" + i));
+        }
+        assertEquals(100, set.size());
+    }
+}
@@ -22,4 +22,19 @@ public class NGramTokenizerTest {
         assertThat(tokens).contains("a1 a2", "a2 a3", "a3 a4", "a4 a5", "a5 a6");
         assertThat(tokens).contains("a1 a2 a3", "a2 a3 a4", "a3 a4 a5", "a4 a5 a6");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void tokenize_shouldReturnEachNGramOnce(){
+        String[] tokens = tokenizer.tokenize("to be or not to be, to be");
+        assertThat(tokens).containsOnlyOnce("to", "be", "to be", "to be or", "be to", "be to be");
+        assertThat(tokens).hasSize(15);
+    }
+
+    @Test
+    public void tokens_shouldStreamTheTokensOfTokenize(){
+        String sentence = "one two three two three four";
+        TokenCursor tokens = ((IStreamingTokenizer) tokenizer).tokens(sentence);
+        String[] expected = tokenizer.tokenize(sentence);
+        assertThat(tokens.toArray()).containsOnly(expected).hasSize(expected.length);
+    }
+}
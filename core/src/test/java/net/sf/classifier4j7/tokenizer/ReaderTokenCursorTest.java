@@ -0,0 +1,37 @@
+package net.sf.classifier4j7.tokenizer;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReaderTokenCursorTest {
+
+    @Test
+    public void next_shouldNotSplitTokensAcrossChunks() {
+        String text = "the quick brown fox jumps over the lazy dog\nand keeps running";
+        ITokenizer tokenizer = new DefaultTokenizer();
+
+        List<String> tokens = new ArrayList<>();
+        TokenCursor cursor = new ReaderTokenCursor(tokenizer, new StringReader(text), 12);
+        while (cursor.next()) {
+            tokens.add(cursor.toString());
+        }
+
+        assertThat(tokens).containsExactly(tokenizer.tokenize(text));
+    }
+
+    @Test
+    public void next_shouldSplitTokensLongerThanTheBuffer() {
+        List<String> tokens = new ArrayList<>();
+        TokenCursor cursor = new ReaderTokenCursor(new DefaultTokenizer(), new StringReader("abcdefghij kl"), 4);
+        while (cursor.next()) {
+            tokens.add(cursor.toString());
+        }
+
+        assertThat(tokens).containsExactly("abcd", "efgh", "ij", "kl");
+    }
+}
@@ -0,0 +1,116 @@
+package net.sf.classifier4j7.bayesian;
+
+import jdbm.helper.CacheEvictionException;
+import jdbm.helper.CachePolicy;
+import jdbm.helper.CachePolicyListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used {@link CachePolicy} bounded by the total size of the
+ * {@link JDBMRecordCache.Entry entries} it holds instead of their number.
+ * The size of an entry is read each time it is put, since an updated record
+ * is put again with its new size.
+ */
+class ByteSizedLRU implements CachePolicy {
+    private final long maxBytes;
+    private final LinkedHashMap<Object, Slot> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<CachePolicyListener> listeners = new ArrayList<>();
+    private long bytes;
+
+    ByteSizedLRU(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be greater than 0");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void put(Object key, Object value) throws CacheEvictionException {
+        Slot slot = new Slot((JDBMRecordCache.Entry) value);
+        // the previous slot holds the size accounted for, the entry may be the same with a new size
+        Slot previous = entries.put(key, slot);
+        if (previous != null) {
+            bytes -= previous.size;
+        }
+        bytes += slot.size;
+
+        Iterator<Map.Entry<Object, Slot>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Object, Slot> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                // never evict the entry being added
+                break;
+            }
+            for (CachePolicyListener listener : listeners) {
+                listener.cacheObjectEvicted(eldest.getValue().entry);
+            }
+            bytes -= eldest.getValue().size;
+            it.remove();
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Slot slot = entries.get(key);
+        return slot == null ? null : slot.entry;
+    }
+
+    @Override
+    public void remove(Object key) {
+        Slot slot = entries.remove(key);
+        if (slot != null) {
+            bytes -= slot.size;
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public Enumeration<?> elements() {
+        List<JDBMRecordCache.Entry> values = new ArrayList<>(entries.size());
+        for (Slot slot : entries.values()) {
+            values.add(slot.entry);
+        }
+        return Collections.enumeration(values);
+    }
+
+    @Override
+    public void addListener(CachePolicyListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Cannot add null listener.");
+        }
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(CachePolicyListener listener) {
+        listeners.remove(listener);
+    }
+
+    long getSize() {
+        return bytes;
+    }
+
+    private static final class Slot {
+        private final JDBMRecordCache.Entry entry;
+        private final int size;
+
+        Slot(JDBMRecordCache.Entry entry) {
+            this.entry = entry;
+            this.size = entry.getSize();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.ICategorisedClassifier;
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.worddatasource.ICategorisedWordsDataSource;
+import net.sf.classifier4j7.worddatasource.IWordsDataSource;
+import net.sf.classifier4j7.worddatasource.WordsDataSourceException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>Makes an opened {@link JDBMWordsDataSource} safe to share between threads.</p>
+ *
+ * <p>addMatch and addNonMatch only append to a lock-free queue. A single writer thread drains it and
+ * applies the updates in batches under a write lock, adding the counts of each word of a batch at once.</p>
+ *
+ * <p>Lookups are served from a concurrent cache of the counts, so the threads classifying with words
+ * already looked up take no lock and never reach JDBM, whose BTree and record cache serialize every access.
+ * A miss reads JDBM under the read lock and caches the counts, or their absence. After each batch, the
+ * writer adds the counts of the batch to the cached words before releasing the write lock, so the cache
+ * never returns counts older than the last batch applied. The cache is emptied when it reaches
+ * <code>cacheSize</code> words.</p>
+ *
+ * <p>Updates are applied asynchronously: call {@link #flush()} to wait until the updates queued so far
+ * are visible.</p>
+ */
+public class ConcurrentJDBMWordsDataSource implements ICategorisedWordsDataSource, AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+    // cached for the words which are not in the data source
+    private static final long[] ABSENT = new long[0];
+
+    private final JDBMWordsDataSource wordsDataSource;
+    private final int batchSize;
+    private final int cacheSize;
+    // the arrays are never modified once cached, the writer replaces them
+    private final ConcurrentMap<Key, long[]> cache = new ConcurrentHashMap<>();
+    private final Queue<Update> updates = new ConcurrentLinkedQueue<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // held shared by the threads queuing updates and exclusively to close, so that no update is queued once closed
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final Object appliedMonitor = new Object();
+    private final Thread writer;
+
+    private long appliedCount;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    public ConcurrentJDBMWordsDataSource(JDBMWordsDataSource wordsDataSource) {
+        this(wordsDataSource, DEFAULT_BATCH_SIZE);
+    }
+
+    public ConcurrentJDBMWordsDataSource(JDBMWordsDataSource wordsDataSource, int batchSize) {
+        this(wordsDataSource, batchSize, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param wordsDataSource an opened data source, it must not be used directly any more
+     * @param batchSize the maximum number of updates applied while holding the write lock
+     * @param cacheSize the maximum number of words whose counts are cached for the lookups
+     */
+    public ConcurrentJDBMWordsDataSource(JDBMWordsDataSource wordsDataSource, int batchSize, int cacheSize) {
+        if (wordsDataSource == null) {
+            throw new IllegalArgumentException("wordsDataSource cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cacheSize must be greater than 0");
+        }
+        this.wordsDataSource = wordsDataSource;
+        this.batchSize = batchSize;
+        this.cacheSize = cacheSize;
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "JDBMWordsDataSource writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @see IWordsDataSource#getWordProbability(java.lang.String)
+     */
+    public WordProbability getWordProbability(String word) {
+        return getWordProbability(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
+     */
+    public WordProbability getWordProbability(String category, String word) {
+        Key key = new Key(category == null ? ICategorisedClassifier.DEFAULT_CATEGORY : category, word);
+        long[] counts = cache.get(key);
+        if (counts == null) {
+            lock.readLock().lock();
+            try {
+                // cached under the read lock, so that the writer cannot apply a batch in between
+                WordProbability wp = wordsDataSource.getWordProbability(category, word);
+                counts = wp == null ? ABSENT : new long[]{wp.getMatchingCount(), wp.getNonMatchingCount()};
+                if (cache.size() >= cacheSize) {
+                    cache.clear();
+                }
+                cache.put(key, counts);
+                return wp;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        if (counts == ABSENT) {
+            return null;
+        }
+        WordProbability wp = new WordProbability(word, counts[0], counts[1]);
+        wp.setCategory(category);
+        return wp;
+    }
+
+    /**
+     * @see IWordsDataSource#addMatch(java.lang.String)
+     */
+    public void addMatch(String word) throws WordsDataSourceException {
+        addMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see IWordsDataSource#addNonMatch(java.lang.String)
+     */
+    public void addNonMatch(String word) throws WordsDataSourceException {
+        addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+     */
+    public void addMatch(String category, String word) throws WordsDataSourceException {
+        enqueue(new Update(category, word, true));
+    }
+
+    /**
+     * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
+     */
+    public void addNonMatch(String category, String word) throws WordsDataSourceException {
+        enqueue(new Update(category, word, false));
+    }
+
+    /**
+     * @return a copy of all the word probabilities, taken under the read lock
+     */
+    @Override
+    public Collection<WordProbability> getAll() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(wordsDataSource.getAll());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeUnsignificantWordProbabilities() {
+        lock.writeLock().lock();
+        try {
+            wordsDataSource.removeUnsignificantWordProbabilities();
+            cache.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until the updates queued before this call have been applied
+     *
+     * @throws WordsDataSourceException if the writer thread failed
+     */
+    public void flush() throws WordsDataSourceException {
+        long target = queuedCount.get();
+        synchronized (appliedMonitor) {
+            while (appliedCount < target) {
+                checkFailure();
+                if (!writer.isAlive()) {
+                    throw new IllegalStateException("Data source is closed");
+                }
+                try {
+                    appliedMonitor.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WordsDataSourceException("Interrupted while waiting for updates", e);
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Applies the pending updates, stops the writer thread and closes the underlying data source
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            wordsDataSource.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void enqueue(Update update) throws WordsDataSourceException {
+        if (update.word == null) {
+            throw new IllegalArgumentException("Word cannot be null");
+        }
+        checkFailure();
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Data source is closed");
+            }
+            updates.offer(update);
+            queuedCount.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        LockSupport.unpark(writer);
+    }
+
+    private void checkFailure() throws WordsDataSourceException {
+        if (failure != null) {
+            throw new WordsDataSourceException("JDBM writer thread failed", failure);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Update update = updates.poll();
+            if (update == null) {
+                // an update may have been queued between the poll and the close, but none after the close
+                if (closed) {
+                    if (updates.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            int applied = 0;
+            // the counts of each word of the batch, applied at once
+            Map<Key, long[]> batch = new LinkedHashMap<>();
+            while (update != null) {
+                Key key = new Key(update.category == null ? ICategorisedClassifier.DEFAULT_CATEGORY : update.category, update.word);
+                long[] counts = batch.get(key);
+                if (counts == null) {
+                    counts = new long[2];
+                    batch.put(key, counts);
+                }
+                counts[update.isMatch ? 0 : 1]++;
+                if (++applied == batchSize) {
+                    break;
+                }
+                update = updates.poll();
+            }
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Key, long[]> entry : batch.entrySet()) {
+                    Key key = entry.getKey();
+                    long[] counts = entry.getValue();
+                    wordsDataSource.addCounts(key.category, key.word, counts[0], counts[1]);
+                    long[] cached = cache.get(key);
+                    if (cached != null) {
+                        cache.put(key, cached == ABSENT ? counts : new long[]{cached[0] + counts[0], cached[1] + counts[1]});
+                    }
+                }
+            } catch (RuntimeException e) {
+                cache.clear();
+                failure = e;
+                return;
+            } finally {
+                lock.writeLock().unlock();
+                synchronized (appliedMonitor) {
+                    appliedCount += applied;
+                    appliedMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String category;
+        private final String word;
+
+        Key(String category, String word) {
+            this.category = category;
+            this.word = word;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return category.equals(key.category) && word.equals(key.word);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * category.hashCode() + word.hashCode();
+        }
+    }
+
+    private static final class Update {
+        private final String category;
+        private final String word;
+        private final boolean isMatch;
+
+        Update(String category, String word, boolean isMatch) {
+            this.category = category;
+            this.word = word;
+            this.isMatch = isMatch;
+        }
+    }
+}
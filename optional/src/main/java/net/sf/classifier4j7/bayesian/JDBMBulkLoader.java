@@ -0,0 +1,233 @@
+package net.sf.classifier4j7.bayesian;
+
+import jdbm.helper.ByteArrayComparator;
+import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.util.VarInt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>Loads word counts into an opened {@link JDBMWordsDataSource} much faster than calling
+ * addMatch for every occurrence.</p>
+ *
+ * <p>The counts are sorted in the key order of the BTree, in memory runs spilled to temporary files when
+ * they do not fit, merged, and then inserted in order: consecutive inserts go to the same cached leaf
+ * page, so pages are filled sequentially instead of being read back from disk at random. Counts of
+ * duplicate words, and of words already in the data source, are summed. Everything is committed once at
+ * the end.</p>
+ *
+ * <p>For very large loads, call {@link JDBMWordsDataSource#disableTransactions()} first so that the
+ * transaction log does not have to hold the whole load.</p>
+ */
+public class JDBMBulkLoader {
+    public static final int DEFAULT_RUN_SIZE = 1000000;
+
+    private static final Comparator<Entry> KEY_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            return ByteArrayComparator.compareByteArray(e1.key, e2.key);
+        }
+    };
+
+    private final JDBMWordsDataSource wordsDataSource;
+    private final int runSize;
+    private final File tmpDir;
+
+    public JDBMBulkLoader(JDBMWordsDataSource wordsDataSource) {
+        this(wordsDataSource, DEFAULT_RUN_SIZE, null);
+    }
+
+    /**
+     * @param wordsDataSource an opened data source
+     * @param runSize the number of words sorted in memory at once
+     * @param tmpDir the directory of the temporary run files, null for the default temporary directory
+     */
+    public JDBMBulkLoader(JDBMWordsDataSource wordsDataSource, int runSize, File tmpDir) {
+        if (wordsDataSource == null) {
+            throw new IllegalArgumentException("wordsDataSource cannot be null");
+        }
+        if (runSize <= 0) {
+            throw new IllegalArgumentException("runSize must be greater than 0");
+        }
+        this.wordsDataSource = wordsDataSource;
+        this.runSize = runSize;
+        this.tmpDir = tmpDir;
+    }
+
+    /**
+     * @param wordProbabilities the category, word, matching and non-matching count of each word, in any order
+     * @return the number of distinct words loaded
+     */
+    public long load(Iterator<WordProbability> wordProbabilities) throws IOException {
+        List<File> runs = new ArrayList<>();
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            List<Entry> run = new ArrayList<>();
+            while (wordProbabilities.hasNext()) {
+                WordProbability wp = wordProbabilities.next();
+                byte[] key = wordsDataSource.createKey(wp.getCategory(), wp.getWord());
+                run.add(new Entry(key, wp.getMatchingCount(), wp.getNonMatchingCount()));
+                if (run.size() == runSize) {
+                    runs.add(writeRun(run));
+                    run.clear();
+                }
+            }
+            Collections.sort(run, KEY_ORDER);
+
+            List<Iterator<Entry>> sources = new ArrayList<>(runs.size() + 1);
+            for (File file : runs) {
+                RunReader reader = new RunReader(file);
+                readers.add(reader);
+                sources.add(reader);
+            }
+            sources.add(run.iterator());
+            long count = insert(sources);
+            wordsDataSource.commit();
+            return count;
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            for (File file : runs) {
+                file.delete();
+            }
+        }
+    }
+
+    private long insert(List<Iterator<Entry>> sources) throws IOException {
+        PriorityQueue<Head> heads = new PriorityQueue<>(sources.size());
+        for (Iterator<Entry> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head(source.next(), source));
+            }
+        }
+        long count = 0;
+        Entry current = null;
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            if (current != null && KEY_ORDER.compare(current, head.entry) == 0) {
+                current.matchingCount += head.entry.matchingCount;
+                current.nonMatchingCount += head.entry.nonMatchingCount;
+            } else {
+                if (current != null) {
+                    wordsDataSource.addCounts(current.key, current.matchingCount, current.nonMatchingCount);
+                    count++;
+                }
+                current = head.entry;
+            }
+            if (head.source.hasNext()) {
+                head.entry = head.source.next();
+                heads.add(head);
+            }
+        }
+        if (current != null) {
+            wordsDataSource.addCounts(current.key, current.matchingCount, current.nonMatchingCount);
+            count++;
+        }
+        return count;
+    }
+
+    private File writeRun(List<Entry> run) throws IOException {
+        Collections.sort(run, KEY_ORDER);
+        File file = File.createTempFile("jdbm-bulk", ".run", tmpDir);
+        file.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (Entry entry : run) {
+                VarInt.write(entry.key.length, out);
+                out.write(entry.key);
+                VarInt.write(entry.matchingCount, out);
+                VarInt.write(entry.nonMatchingCount, out);
+            }
+        }
+        return file;
+    }
+
+    private static final class Entry {
+        private final byte[] key;
+        private long matchingCount;
+        private long nonMatchingCount;
+
+        Entry(byte[] key, long matchingCount, long nonMatchingCount) {
+            this.key = key;
+            this.matchingCount = matchingCount;
+            this.nonMatchingCount = nonMatchingCount;
+        }
+    }
+
+    private static final class Head implements Comparable<Head> {
+        private Entry entry;
+        private final Iterator<Entry> source;
+
+        Head(Entry entry, Iterator<Entry> source) {
+            this.entry = entry;
+            this.source = source;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return KEY_ORDER.compare(entry, other.entry);
+        }
+    }
+
+    private static final class RunReader implements Iterator<Entry>, AutoCloseable {
+        private final DataInputStream in;
+        private Entry next;
+
+        RunReader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            next = read();
+        }
+
+        private Entry read() throws IOException {
+            int keyLength;
+            try {
+                keyLength = (int) VarInt.read(in);
+            } catch (EOFException e) {
+                return null;
+            }
+            byte[] key = new byte[keyLength];
+            in.readFully(key);
+            return new Entry(key, VarInt.read(in), VarInt.read(in));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry next() {
+            Entry entry = next;
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading bulk load run", e);
+            }
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.sf.classifier4j7.bayesian;
+
+import jdbm.helper.CachePolicy;
+import jdbm.helper.SoftCache;
+
+/**
+ * Record cache policies available to {@link JDBMWordsDataSource}.
+ */
+public enum JDBMCacheType {
+    /**
+     * Keeps up to <code>size</code> most recently used records
+     */
+    MRU {
+        @Override
+        CachePolicy createCachePolicy(long size) {
+            return new jdbm.helper.MRU(toInt(size));
+        }
+    },
+
+    /**
+     * Keeps up to <code>size</code> most recently used records strongly reachable, older records are
+     * kept softly reachable until the garbage collector needs the memory
+     */
+    SOFT {
+        @Override
+        CachePolicy createCachePolicy(long size) {
+            return new SoftCache(new jdbm.helper.MRU(toInt(size)));
+        }
+    },
+
+    /**
+     * Keeps the least recently used records up to a total of <code>size</code> bytes, measured as the
+     * serialized size of the records
+     */
+    LRU_BYTES {
+        @Override
+        CachePolicy createCachePolicy(long size) {
+            return new ByteSizedLRU(size);
+        }
+    };
+
+    abstract CachePolicy createCachePolicy(long size);
+
+    private static int toInt(long size) {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,218 @@
+package net.sf.classifier4j7.bayesian;
+
+import jdbm.RecordManager;
+import jdbm.helper.ByteArraySerializer;
+import jdbm.helper.CacheEvictionException;
+import jdbm.helper.CachePolicy;
+import jdbm.helper.CachePolicyListener;
+import jdbm.helper.DefaultSerializer;
+import jdbm.helper.Serializer;
+
+import java.io.IOException;
+import java.util.Enumeration;
+
+/**
+ * <p>Write-back record cache in front of a JDBM {@link RecordManager}, playing the same role as
+ * {@link jdbm.recman.CacheRecordManager}.</p>
+ *
+ * <p>Records are read and written in their serialized form so that the size of each cached record is
+ * known, which allows caches bounded in bytes (see {@link JDBMCacheType#LRU_BYTES}). Cache hits and
+ * misses of {@link #fetch(long, Serializer)} are counted.</p>
+ */
+public class JDBMRecordCache implements RecordManager {
+    private final RecordManager recordManager;
+    private final CachePolicy cache;
+
+    private long hitCount;
+    private long missCount;
+
+    public JDBMRecordCache(RecordManager recordManager, CachePolicy cache) {
+        if (recordManager == null || cache == null) {
+            throw new IllegalArgumentException("recordManager and cache cannot be null");
+        }
+        this.recordManager = recordManager;
+        this.cache = cache;
+        cache.addListener(new CachePolicyListener() {
+            @Override
+            public void cacheObjectEvicted(Object obj) throws CacheEvictionException {
+                try {
+                    write((Entry) obj);
+                } catch (IOException e) {
+                    throw new CacheEvictionException(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public long insert(Object obj) throws IOException {
+        return insert(obj, DefaultSerializer.INSTANCE);
+    }
+
+    @Override
+    public synchronized long insert(Object obj, Serializer serializer) throws IOException {
+        byte[] data = serializer.serialize(obj);
+        long recid = recordManager.insert(data, ByteArraySerializer.INSTANCE);
+        cachePut(new Entry(recid, obj, serializer, data.length));
+        return recid;
+    }
+
+    @Override
+    public synchronized void delete(long recid) throws IOException {
+        cache.remove(recid);
+        recordManager.delete(recid);
+    }
+
+    @Override
+    public void update(long recid, Object obj) throws IOException {
+        update(recid, obj, DefaultSerializer.INSTANCE);
+    }
+
+    @Override
+    public synchronized void update(long recid, Object obj, Serializer serializer) throws IOException {
+        // serialized only to know the size of the record, which grows with the BTree pages, it is written
+        // on eviction or commit like any other update
+        int size = serializer.serialize(obj).length;
+        Entry entry = (Entry) cache.get(recid);
+        if (entry == null) {
+            entry = new Entry(recid, obj, serializer, size);
+        } else {
+            entry.obj = obj;
+            entry.serializer = serializer;
+            entry.size = size;
+        }
+        entry.dirty = true;
+        cachePut(entry);
+    }
+
+    @Override
+    public Object fetch(long recid) throws IOException {
+        return fetch(recid, DefaultSerializer.INSTANCE);
+    }
+
+    @Override
+    public synchronized Object fetch(long recid, Serializer serializer) throws IOException {
+        Entry entry = (Entry) cache.get(recid);
+        if (entry != null) {
+            hitCount++;
+            return entry.obj;
+        }
+        missCount++;
+        byte[] data = (byte[]) recordManager.fetch(recid, ByteArraySerializer.INSTANCE);
+        Object obj = serializer.deserialize(data);
+        cachePut(new Entry(recid, obj, serializer, data.length));
+        return obj;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writeDirtyEntries();
+        cache.removeAll();
+        recordManager.close();
+    }
+
+    @Override
+    public int getRootCount() {
+        return recordManager.getRootCount();
+    }
+
+    @Override
+    public long getRoot(int id) throws IOException {
+        return recordManager.getRoot(id);
+    }
+
+    @Override
+    public void setRoot(int id, long rowid) throws IOException {
+        recordManager.setRoot(id, rowid);
+    }
+
+    @Override
+    public synchronized void commit() throws IOException {
+        writeDirtyEntries();
+        recordManager.commit();
+    }
+
+    @Override
+    public synchronized void rollback() throws IOException {
+        cache.removeAll();
+        recordManager.rollback();
+    }
+
+    @Override
+    public long getNamedObject(String name) throws IOException {
+        return recordManager.getNamedObject(name);
+    }
+
+    @Override
+    public void setNamedObject(String name, long recid) throws IOException {
+        recordManager.setNamedObject(name, recid);
+    }
+
+    /**
+     * @return the number of fetches served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of fetches that had to read the record from the underlying record manager
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the proportion of fetches served from the cache, 0 if nothing has been fetched yet
+     */
+    public synchronized double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0d : (double) hitCount / total;
+    }
+
+    public synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    private void cachePut(Entry entry) throws IOException {
+        try {
+            cache.put(entry.recid, entry);
+        } catch (CacheEvictionException e) {
+            throw new IOException("Error while evicting a record from the cache", e.getNestedException());
+        }
+    }
+
+    private void writeDirtyEntries() throws IOException {
+        Enumeration<?> entries = cache.elements();
+        while (entries.hasMoreElements()) {
+            write((Entry) entries.nextElement());
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        if (entry.dirty) {
+            recordManager.update(entry.recid, entry.obj, entry.serializer);
+            entry.dirty = false;
+        }
+    }
+
+    static final class Entry {
+        private final long recid;
+        private int size;
+        private Object obj;
+        private Serializer serializer;
+        private boolean dirty;
+
+        Entry(long recid, Object obj, Serializer serializer, int size) {
+            this.recid = recid;
+            this.obj = obj;
+            this.serializer = serializer;
+            this.size = size;
+        }
+
+        int getSize() {
+            return size;
+        }
+    }
+}
@@ -51,60 +51,164 @@
 
 package net.sf.classifier4j7.bayesian;
 
-import jdbm.RecordManager;
-import jdbm.RecordManagerFactory;
 import jdbm.btree.BTree;
-import jdbm.helper.MRU;
-import jdbm.helper.StringComparator;
-import jdbm.recman.CacheRecordManager;
+import jdbm.helper.ByteArrayComparator;
+import jdbm.helper.ByteArraySerializer;
+import jdbm.helper.Tuple;
+import jdbm.helper.TupleBrowser;
+import jdbm.recman.BaseRecordManager;
 import net.sf.classifier4j7.ICategorisedClassifier;
 import net.sf.classifier4j7.model.WordProbability;
+import net.sf.classifier4j7.util.VarInt;
 import net.sf.classifier4j7.worddatasource.ICategorisedWordsDataSource;
+import net.sf.classifier4j7.worddatasource.ICountingWordsDataSource;
+import net.sf.classifier4j7.worddatasource.ISequencedWordsDataSource;
+import net.sf.classifier4j7.worddatasource.ISortedWordsDataSource;
 import net.sf.classifier4j7.worddatasource.IWordsDataSource;
+import net.sf.classifier4j7.worddatasource.PruningPolicy;
+import net.sf.classifier4j7.worddatasource.WordOrder;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
-public class JDBMWordsDataSource implements ICategorisedWordsDataSource, AutoCloseable {
-	private RecordManager recordManager = null;
+/**
+ * <p>A JDBM based datasource.</p>
+ *
+ * <p>Words are stored in a BTree keyed by the varint encoded id of their category followed by
+ * their UTF-8 bytes. Values only hold the matching and non-matching counts, see
+ * {@link WordCountsSerializer}. Category ids are kept in a separate record.</p>
+ *
+ * <p>The UTF-8 keys of a category are in the {@link WordOrder}, so {@link #getAllSorted()} browses the
+ * categories one after the other, sorted by name.</p>
+ *
+ * <p>{@link #applyDelta(long, List)} stores the sequence number of the delta in its own record and commits
+ * it with the counts in the same JDBM transaction, unless the transactions are disabled.</p>
+ */
+public class JDBMWordsDataSource implements ICountingWordsDataSource, ISequencedWordsDataSource, ISortedWordsDataSource, AutoCloseable {
+	public static final JDBMCacheType DEFAULT_CACHE_TYPE = JDBMCacheType.MRU;
+	public static final long DEFAULT_CACHE_SIZE = 100;
+
+	private static final int REMOVE_BATCH_SIZE = 1000;
+
+	private BaseRecordManager recordManager = null;
+	private JDBMRecordCache recordCache = null;
 	private BTree tree;
 
+	private long categoriesRecid;
+	// the record of the sequence number of the last delta applied, 0 until one is
+	private long sequenceRecid;
+	private ArrayList<String> categories;
+	private final Map<String, Integer> categoryIds = new HashMap<>();
+
 	String dir = ".";
 	static String databaseName = "wordprobs";
-	static String tableName = "wordprobabilities";
+	static String tableName = "wordcounts";
+	static String categoriesName = "categories";
+	static String sequenceName = "sequence";
+
+	private final JDBMCacheType cacheType;
+	private final long cacheSize;
+	private PruningPolicy pruningPolicy = PruningPolicy.DEFAULT;
 
 	public JDBMWordsDataSource() {
+		this(".");
 	}
 
 	public JDBMWordsDataSource(String directory) {
+		this(directory, DEFAULT_CACHE_TYPE, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param directory the directory holding the database files
+	 * @param cacheType the record cache policy
+	 * @param cacheSize the size of the record cache, a number of records or of bytes
+	 * depending on the cacheType
+	 */
+	public JDBMWordsDataSource(String directory, JDBMCacheType cacheType, long cacheSize) {
+		if (cacheType == null) {
+			throw new IllegalArgumentException("cacheType cannot be null");
+		}
+		if (cacheSize <= 0) {
+			throw new IllegalArgumentException("cacheSize must be greater than 0");
+		}
 		this.dir = directory;
+		this.cacheType = cacheType;
+		this.cacheSize = cacheSize;
 	}
 
 	@Override
 	public void close() {
-		if (recordManager != null) {
+		if (recordCache != null) {
 			try {
-				recordManager.commit();
-				recordManager.close();
+				recordCache.commit();
+				recordCache.close();
 			} catch (IOException e) {
 				throw new RuntimeException("Error in JDBM datasource", e);
 			}
 		}
 	}
 
+	@SuppressWarnings("unchecked")
 	public void open() throws IOException {
-		recordManager = RecordManagerFactory.createRecordManager(dir + "/" + databaseName);
-		CacheRecordManager cacheRecordManager = new CacheRecordManager(recordManager, new MRU(100));
+		// RecordManagerFactory would add its own record cache below ours
+		recordManager = new BaseRecordManager(dir + "/" + databaseName);
+		recordCache = new JDBMRecordCache(recordManager, cacheType.createCachePolicy(cacheSize));
 
 		long recid = recordManager.getNamedObject(tableName);
 		if (recid != 0) {
 			// already exists
-			tree = BTree.load(cacheRecordManager, recid);
+			tree = BTree.load(recordCache, recid);
 		} else {
 			// does not exist
-			tree = BTree.createInstance(cacheRecordManager, new StringComparator());
+			tree = BTree.createInstance(recordCache, new ByteArrayComparator(), ByteArraySerializer.INSTANCE, WordCountsSerializer.INSTANCE);
 			recordManager.setNamedObject(tableName, tree.getRecid());
 		}
+
+		categoriesRecid = recordManager.getNamedObject(categoriesName);
+		if (categoriesRecid != 0) {
+			categories = (ArrayList<String>) recordCache.fetch(categoriesRecid);
+		} else {
+			categories = new ArrayList<>();
+			categoriesRecid = recordCache.insert(categories);
+			recordManager.setNamedObject(categoriesName, categoriesRecid);
+		}
+		categoryIds.clear();
+		for (int i = 0; i < categories.size(); i++) {
+			categoryIds.put(categories.get(i), i);
+		}
+		sequenceRecid = recordManager.getNamedObject(sequenceName);
+	}
+
+	/**
+	 * @return the record cache, or null if the data source is not open
+	 */
+	public JDBMRecordCache getRecordCache() {
+		return recordCache;
+	}
+
+	/**
+	 * Writes the pending changes to disk
+	 */
+	public void commit() throws IOException {
+		recordCache.commit();
+	}
+
+	/**
+	 * Switches the opened data source to writing straight to the database file instead of going through
+	 * the transaction log. It speeds up large loads, see {@link JDBMBulkLoader}, but the database is
+	 * corrupted if the process dies before {@link #close()}. It cannot be switched back until reopened.
+	 */
+	public void disableTransactions() {
+		recordManager.disableTransactions();
 	}
 
 	/**
@@ -121,51 +225,215 @@ public class JDBMWordsDataSource implements ICategorisedWordsDataSource, AutoClo
 		addNonMatch(ICategorisedClassifier.DEFAULT_CATEGORY, word);
 	}
 
+	/**
+	 * @return a view of all the word probabilities, read from the tree while iterating
+	 */
 	@Override
 	public Collection<WordProbability> getAll() {
-		return null;
+		return new WordProbabilities(null);
 	}
 
+	/**
+	 * @return the word probabilities in the {@link WordOrder}, read from the tree while iterating. The tree
+	 * must not be modified while iterating.
+	 * @see ISortedWordsDataSource#getAllSorted()
+	 */
 	@Override
-	public void removeUnsignificantWordProbabilities() {
+	public Iterator<WordProbability> getAllSorted() {
+		final List<String> sortedCategories = new ArrayList<>(categories);
+		Collections.sort(sortedCategories, WordOrder.STRING_ORDER);
+		return new Iterator<WordProbability>() {
+			private int index;
+			private Iterator<WordProbability> words = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!words.hasNext() && index < sortedCategories.size()) {
+					words = new WordProbabilityIterator(getKey(categoryIds.get(sortedCategories.get(index++)), ""));
+				}
+				return words.hasNext();
+			}
 
+			@Override
+			public WordProbability next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return words.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	/**
-	 * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+	 * @param category the category, or null for the default
+	 * @return a view of the word probabilities of the category, read from the tree while iterating
 	 */
-	public void addMatch(String category, String word) {
+	public Collection<WordProbability> getAll(String category) {
+		Integer categoryId = categoryIds.get(category == null ? ICategorisedClassifier.DEFAULT_CATEGORY : category);
+		if (categoryId == null) {
+			return Collections.emptyList();
+		}
+		return new WordProbabilities(getKey(categoryId, ""));
+	}
+
+	@Override
+	public void removeUnsignificantWordProbabilities() {
+		removeUnsignificantKeys(null);
+	}
+
+	/**
+	 * Removes the words rejected by the pruning policy in the category, scanning the tree in batches of keys
+	 *
+	 * @param prefix the key prefix of the category, or null for all categories
+	 */
+	private void removeUnsignificantKeys(byte[] prefix) {
 		try {
-			WordProbability wp = getWordProbability(category, word);
-			if (wp == null) {
-				wp = new WordProbability(word, 1, 0);
-			} else {
-				wp.setMatchingCount(wp.getMatchingCount() + 1);
+			List<byte[]> unsignificantKeys = new ArrayList<>(REMOVE_BATCH_SIZE);
+			Tuple tuple = new Tuple();
+			byte[] from = prefix;
+			boolean more = true;
+			while (more) {
+				more = false;
+				TupleBrowser browser = from == null ? tree.browse() : tree.browse(from);
+				while (browser.getNext(tuple)) {
+					byte[] key = (byte[]) tuple.getKey();
+					if (prefix != null && !startsWith(key, prefix)) {
+						break;
+					}
+					if (pruningPolicy.isUnsignificant(toWordProbability(key, (long[]) tuple.getValue()))) {
+						unsignificantKeys.add(key);
+						if (unsignificantKeys.size() == REMOVE_BATCH_SIZE) {
+							// the browser cannot survive removals, restart from the last removed key
+							from = key;
+							more = true;
+							break;
+						}
+					}
+				}
+				for (byte[] key : unsignificantKeys) {
+					tree.remove(key);
+				}
+				unsignificantKeys.clear();
 			}
-			tree.insert(getKey(category, word), wp, true);
 		} catch (IOException e) {
 			throw new RuntimeException("Error with JDBM datasource", e);
 		}
+	}
 
+	/**
+	 * @see #removeUnsignificantWordProbabilities()
+	 * @param category the category, or null for the default
+	 */
+	public void removeUnsignificantWordProbabilities(String category) {
+		Integer categoryId = categoryIds.get(category == null ? ICategorisedClassifier.DEFAULT_CATEGORY : category);
+		if (categoryId != null) {
+			removeUnsignificantKeys(getKey(categoryId, ""));
+		}
+	}
+
+	public PruningPolicy getPruningPolicy() {
+		return pruningPolicy;
+	}
+
+	public void setPruningPolicy(PruningPolicy pruningPolicy) {
+		if (pruningPolicy == null) {
+			throw new IllegalArgumentException("pruningPolicy cannot be null");
+		}
+		this.pruningPolicy = pruningPolicy;
+	}
+
+	/**
+	 * @see ICategorisedWordsDataSource#addMatch(java.lang.String, java.lang.String)
+	 */
+	public void addMatch(String category, String word) {
+		addCounts(category, word, 1, 0);
 	}
 
 	/**
 	 * @see ICategorisedWordsDataSource#addNonMatch(java.lang.String, java.lang.String)
 	 */
 	public void addNonMatch(String category, String word) {
+		addCounts(category, word, 0, 1);
+	}
+
+	/**
+	 * @see ICountingWordsDataSource#addCounts(java.lang.String, java.lang.String, long, long)
+	 */
+	public void addCounts(String category, String word, long matchingCount, long nonMatchingCount) {
+		if (matchingCount < 0 || nonMatchingCount < 0) {
+			throw new IllegalArgumentException("matchingCount and nonMatchingCount cannot be negative");
+		}
+		try {
+			addCounts(createKey(category, word), matchingCount, nonMatchingCount);
+		} catch (IOException e) {
+			throw new RuntimeException("Error with JDBM datasource", e);
+		}
+	}
+
+	void addCounts(byte[] key, long matchingCount, long nonMatchingCount) throws IOException {
+		// the sum is computed before it is inserted: the arrays of the tree belong to its cached pages
+		// and must not be changed once handed to it, whatever the record manager
+		long[] previous = (long[]) tree.find(key);
+		long[] counts = previous == null
+				? new long[]{matchingCount, nonMatchingCount}
+				: new long[]{previous[0] + matchingCount, previous[1] + nonMatchingCount};
+		tree.insert(key, counts, true);
+	}
+
+	/**
+	 * Adds the counts, updates the sequence record and commits them together
+	 *
+	 * @see ISequencedWordsDataSource#applyDelta(long, java.util.List)
+	 */
+	public void applyDelta(long sequence, List<WordProbability> changes) {
+		if (changes == null) {
+			throw new IllegalArgumentException("changes cannot be null");
+		}
 		try {
-			WordProbability wp = getWordProbability(category, word);
-			if (wp == null) {
-				wp = new WordProbability(word, 0, 1);
+			for (WordProbability change : changes) {
+				if (change.getMatchingCount() < 0 || change.getNonMatchingCount() < 0) {
+					throw new IllegalArgumentException("matchingCount and nonMatchingCount cannot be negative");
+				}
+				addCounts(createKey(change.getCategory(), change.getWord()), change.getMatchingCount(), change.getNonMatchingCount());
+			}
+			if (sequenceRecid == 0) {
+				sequenceRecid = recordCache.insert(sequence);
+				recordManager.setNamedObject(sequenceName, sequenceRecid);
 			} else {
-				wp.setNonMatchingCount(wp.getNonMatchingCount() + 1);
+				recordCache.update(sequenceRecid, sequence);
 			}
-			tree.insert(getKey(category, word), wp, true);
+			recordCache.commit();
 		} catch (IOException e) {
-			throw new RuntimeException("Error with JDBM datasource", e);
+			throw new RuntimeException("Error in JDBM datasource", e);
 		}
 	}
 
+	/**
+	 * @see ISequencedWordsDataSource#getLastAppliedSequence()
+	 */
+	public long getLastAppliedSequence() {
+		if (sequenceRecid == 0) {
+			return 0;
+		}
+		try {
+			return (Long) recordCache.fetch(sequenceRecid);
+		} catch (IOException e) {
+			throw new RuntimeException("Error in JDBM datasource", e);
+		}
+	}
+
+	/**
+	 * @return the key of word in category, registering the category if it is new
+	 */
+	byte[] createKey(String category, String word) throws IOException {
+		return getKey(getOrCreateCategoryId(category), word);
+	}
+
 	/**
 	 * @see IWordsDataSource#getWordProbability(java.lang.String)
 	 */
@@ -177,33 +445,148 @@ public class JDBMWordsDataSource implements ICategorisedWordsDataSource, AutoClo
 	 * @see ICategorisedWordsDataSource#getWordProbability(java.lang.String, java.lang.String)
 	 */
 	public WordProbability getWordProbability(String category, String word) {
+		Integer categoryId = categoryIds.get(category == null ? ICategorisedClassifier.DEFAULT_CATEGORY : category);
+		if (categoryId == null) {
+			return null;
+		}
 		try {
-			return (WordProbability) tree.find(getKey(category,word));
+			long[] counts = (long[]) tree.find(getKey(categoryId, word));
+			return counts == null ? null : toWordProbability(category, word, counts);
 		} catch (IOException e) {
 			throw new RuntimeException("Error in JDBM datasource", e);
 		}
 	}
 
+	private WordProbability toWordProbability(byte[] key, long[] counts) throws IOException {
+		long categoryId = VarInt.read(key, 0);
+		int offset = VarInt.sizeOf(categoryId);
+		String word = new String(key, offset, key.length - offset, StandardCharsets.UTF_8);
+		return toWordProbability(categories.get((int) categoryId), word, counts);
+	}
+
+	private static boolean startsWith(byte[] key, byte[] prefix) {
+		if (key.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (key[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private WordProbability toWordProbability(String category, String word, long[] counts) {
+		WordProbability wp = new WordProbability(word, counts[0], counts[1]);
+		if (category != null) {
+			wp.setCategory(category);
+		}
+		return wp;
+	}
+
+	private int getOrCreateCategoryId(String category) throws IOException {
+		if (category == null) {
+			category = ICategorisedClassifier.DEFAULT_CATEGORY;
+		}
+		Integer categoryId = categoryIds.get(category);
+		if (categoryId == null) {
+			categoryId = categories.size();
+			categories.add(category);
+			recordCache.update(categoriesRecid, categories);
+			categoryIds.put(category, categoryId);
+		}
+		return categoryId;
+	}
+
 	/**
-	 * 
-	 * @param category The category, or null for the default
+	 *
+	 * @param categoryId The id of the category
 	 * @param word The word, cannot be null
-	 * @return the key for the category and word. By default this is "category : word"
+	 * @return the key for the category and word: the varint encoded categoryId followed by the UTF-8 bytes of word
 	 * @throws IllegalArgumentException if word is null
 	 */
-	protected String getKey(String category, String word) throws IllegalArgumentException {
+	protected byte[] getKey(int categoryId, String word) throws IllegalArgumentException {
 		if (word == null) {
 			throw new IllegalArgumentException("Word cannot be null");
 		}
-		StringBuffer result = new StringBuffer("");
-		if (category == null) {
-			result.append(ICategorisedClassifier.DEFAULT_CATEGORY);
-		} else {
-			result.append(category);
+		byte[] wordBytes = word.getBytes(StandardCharsets.UTF_8);
+		byte[] key = new byte[VarInt.sizeOf(categoryId) + wordBytes.length];
+		int offset = VarInt.write(categoryId, key, 0);
+		System.arraycopy(wordBytes, 0, key, offset, wordBytes.length);
+		return key;
+	}
+
+	/**
+	 * Read-only view over the tree, optionally limited to the keys starting with a prefix.
+	 * The tree must not be modified while iterating.
+	 */
+	private class WordProbabilities extends AbstractCollection<WordProbability> {
+		private final byte[] prefix;
+
+		WordProbabilities(byte[] prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Iterator<WordProbability> iterator() {
+			return new WordProbabilityIterator(prefix);
 		}
-		result.append(" : "); // space:space
-		result.append(word);
 
-		return result.toString();
+		@Override
+		public int size() {
+			if (prefix == null) {
+				return tree.size();
+			}
+			int size = 0;
+			for (Iterator<WordProbability> it = iterator(); it.hasNext(); it.next()) {
+				size++;
+			}
+			return size;
+		}
+	}
+
+	private class WordProbabilityIterator implements Iterator<WordProbability> {
+		private final byte[] prefix;
+		private final TupleBrowser browser;
+		private final Tuple tuple = new Tuple();
+		private boolean hasNext;
+
+		WordProbabilityIterator(byte[] prefix) {
+			this.prefix = prefix;
+			try {
+				browser = prefix == null ? tree.browse() : tree.browse(prefix);
+				advance();
+			} catch (IOException e) {
+				throw new RuntimeException("Error in JDBM datasource", e);
+			}
+		}
+
+		private void advance() throws IOException {
+			hasNext = browser.getNext(tuple) && (prefix == null || startsWith((byte[]) tuple.getKey(), prefix));
+		}
+
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+
+		@Override
+		public WordProbability next() {
+			if (!hasNext) {
+				throw new NoSuchElementException();
+			}
+			try {
+				WordProbability wp = toWordProbability((byte[]) tuple.getKey(), (long[]) tuple.getValue());
+				advance();
+				return wp;
+			} catch (IOException e) {
+				throw new RuntimeException("Error in JDBM datasource", e);
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
 	}
 }
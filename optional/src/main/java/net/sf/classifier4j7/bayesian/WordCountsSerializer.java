@@ -0,0 +1,31 @@
+package net.sf.classifier4j7.bayesian;
+
+import jdbm.helper.Serializer;
+import net.sf.classifier4j7.util.VarInt;
+
+import java.io.IOException;
+
+/**
+ * Serializes the <code>long[] {matchingCount, nonMatchingCount}</code> values of
+ * {@link JDBMWordsDataSource} as two varints.
+ */
+public class WordCountsSerializer implements Serializer {
+    private static final long serialVersionUID = 1L;
+
+    public static final WordCountsSerializer INSTANCE = new WordCountsSerializer();
+
+    @Override
+    public byte[] serialize(Object obj) throws IOException {
+        long[] counts = (long[]) obj;
+        byte[] data = new byte[VarInt.sizeOf(counts[0]) + VarInt.sizeOf(counts[1])];
+        VarInt.write(counts[1], data, VarInt.write(counts[0], data, 0));
+        return data;
+    }
+
+    @Override
+    public Object deserialize(byte[] data) throws IOException {
+        long matchingCount = VarInt.read(data, 0);
+        long nonMatchingCount = VarInt.read(data, VarInt.sizeOf(matchingCount));
+        return new long[]{matchingCount, nonMatchingCount};
+    }
+}
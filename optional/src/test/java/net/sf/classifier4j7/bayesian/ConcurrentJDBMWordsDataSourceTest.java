@@ -0,0 +1,152 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentJDBMWordsDataSourceTest {
+    private File dir;
+    private ConcurrentJDBMWordsDataSource wordsDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("jdbm").toFile();
+        JDBMWordsDataSource jdbmWordsDataSource = new JDBMWordsDataSource(dir.getPath());
+        jdbmWordsDataSource.open();
+        wordsDataSource = new ConcurrentJDBMWordsDataSource(jdbmWordsDataSource, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wordsDataSource.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void addMatch_shouldBeVisibleAfterFlush() throws Exception {
+        wordsDataSource.addMatch("myWord");
+        wordsDataSource.addNonMatch("category", "myWord");
+        wordsDataSource.flush();
+
+        WordProbability wp = wordsDataSource.getWordProbability("myWord");
+        assertEquals(1, wp.getMatchingCount());
+        assertEquals(0, wp.getNonMatchingCount());
+        wp = wordsDataSource.getWordProbability("category", "myWord");
+        assertEquals(0, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+    }
+
+    @Test
+    public void getWordProbability_shouldSeeTheBatchesAppliedAfterCaching() throws Exception {
+        assertNull(wordsDataSource.getWordProbability("myWord"));
+        wordsDataSource.addMatch("myWord");
+        wordsDataSource.flush();
+        assertEquals(1, wordsDataSource.getWordProbability("myWord").getMatchingCount());
+
+        for (int i = 0; i < 25; i++) {
+            wordsDataSource.addMatch("myWord");
+            wordsDataSource.addNonMatch(null, "myWord");
+        }
+        wordsDataSource.flush();
+        WordProbability wp = wordsDataSource.getWordProbability("myWord");
+        assertEquals(26, wp.getMatchingCount());
+        assertEquals(25, wp.getNonMatchingCount());
+        assertNull(wordsDataSource.getWordProbability("category", "myWord"));
+    }
+
+    @Test
+    public void close_shouldWriteEveryUpdateQueuedBeforeIt() throws Exception {
+        File closeDir = Files.createTempDirectory("jdbm").toFile();
+        try {
+            JDBMWordsDataSource jdbmWordsDataSource = new JDBMWordsDataSource(closeDir.getPath());
+            jdbmWordsDataSource.open();
+            final ConcurrentJDBMWordsDataSource closing = new ConcurrentJDBMWordsDataSource(jdbmWordsDataSource, 10);
+            final AtomicLong queued = new AtomicLong();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                threads.add(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            while (true) {
+                                closing.addMatch("myWord");
+                                queued.incrementAndGet();
+                            }
+                        } catch (IllegalStateException e) {
+                            // closed
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            Thread.sleep(50);
+            closing.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            jdbmWordsDataSource = new JDBMWordsDataSource(closeDir.getPath());
+            jdbmWordsDataSource.open();
+            assertEquals(queued.get(), jdbmWordsDataSource.getWordProbability("myWord").getMatchingCount());
+            jdbmWordsDataSource.close();
+        } finally {
+            for (File file : closeDir.listFiles()) {
+                file.delete();
+            }
+            closeDir.delete();
+        }
+    }
+
+    @Test
+    public void concurrentReadsAndWrites() throws Exception {
+        final int threadCount = 4;
+        final int count = 2000;
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < count; i++) {
+                            wordsDataSource.addMatch("word" + (i % 100));
+                            wordsDataSource.getWordProbability("word" + (i % 50));
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+
+        wordsDataSource.flush();
+        assertEquals(100, wordsDataSource.getAll().size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(threadCount * count / 100, wordsDataSource.getWordProbability("word" + i).getMatchingCount());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.sf.classifier4j7.bayesian;
+
+import net.sf.classifier4j7.model.WordProbability;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JDBMBulkLoaderTest {
+    private File dir;
+    private JDBMWordsDataSource wordsDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("jdbm").toFile();
+        wordsDataSource = new JDBMWordsDataSource(dir.getPath());
+        wordsDataSource.open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wordsDataSource.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void load_shouldSumCountsAcrossRuns() throws Exception {
+        wordsDataSource.addMatch("word1");
+
+        List<WordProbability> wps = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            wps.add(new WordProbability("word" + i, 1, 2));
+            wps.add(new WordProbability("word" + i, 3, 0));
+            wps.add(new WordProbability("category", "word" + i));
+        }
+        Collections.shuffle(wps, new Random(42));
+
+        JDBMBulkLoader loader = new JDBMBulkLoader(wordsDataSource, 64, dir);
+        assertEquals(1000, loader.load(wps.iterator()));
+
+        WordProbability wp = wordsDataSource.getWordProbability("word1");
+        assertEquals(5, wp.getMatchingCount());
+        assertEquals(2, wp.getNonMatchingCount());
+        wp = wordsDataSource.getWordProbability("word499");
+        assertEquals(4, wp.getMatchingCount());
+        assertEquals(2, wp.getNonMatchingCount());
+        assertNotNull(wordsDataSource.getWordProbability("category", "word250"));
+        assertEquals(1000, wordsDataSource.getAll().size());
+        assertEquals(2, dir.listFiles().length);
+    }
+}
@@ -0,0 +1,62 @@
+package net.sf.classifier4j7.bayesian;
+
+import jdbm.helper.DefaultSerializer;
+import jdbm.recman.BaseRecordManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Enumeration;
+
+import static org.junit.Assert.*;
+
+public class JDBMRecordCacheTest {
+	private static final int MAX_BYTES = 1000;
+
+	private File dir;
+	private ByteSizedLRU lru;
+	private JDBMRecordCache recordCache;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDirectory("jdbm").toFile();
+		lru = new ByteSizedLRU(MAX_BYTES);
+		recordCache = new JDBMRecordCache(new BaseRecordManager(new File(dir, "records").getPath()), lru);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		recordCache.close();
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void update_shouldAccountForTheNewSizeOfTheRecords() throws Exception {
+		long[] recids = new long[4];
+		for (int i = 0; i < recids.length; i++) {
+			recids[i] = recordCache.insert(new byte[100]);
+		}
+		int size = DefaultSerializer.INSTANCE.serialize(new byte[400]).length;
+		for (int length = 110; length <= 400; length += 10) {
+			for (long recid : recids) {
+				recordCache.update(recid, new byte[length]);
+				assertTrue(lru.getSize() <= MAX_BYTES);
+			}
+		}
+
+		int cached = 0;
+		for (Enumeration<?> entries = lru.elements(); entries.hasMoreElements(); entries.nextElement()) {
+			cached++;
+		}
+		assertEquals(MAX_BYTES / size, cached);
+		assertEquals(cached * size, lru.getSize());
+		for (long recid : recids) {
+			assertEquals(400, ((byte[]) recordCache.fetch(recid)).length);
+		}
+	}
+}
@@ -50,14 +50,21 @@
  */
 package net.sf.classifier4j7.bayesian;
 
+import net.sf.classifier4j7.ICategorisedClassifier;
 import net.sf.classifier4j7.model.WordProbability;
 import net.sf.classifier4j7.worddatasource.ICategorisedWordsDataSource;
 import net.sf.classifier4j7.worddatasource.IWordsDataSource;
+import net.sf.classifier4j7.worddatasource.WordOrder;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -165,6 +172,160 @@ public class JDBMWordsDataSourceTest {
         assertEquals(2, wp.getMatchingCount());
     }
 
+    @Test
+    public void testReopen() throws Exception {
+        ((ICategorisedWordsDataSource) wordsDataSource).addMatch("category1", "h\u00e9llo");
+        ((ICategorisedWordsDataSource) wordsDataSource).addNonMatch("category2", "h\u00e9llo");
+        wordsDataSource.addMatch("myWord");
+        ((JDBMWordsDataSource) wordsDataSource).close();
+
+        wordsDataSource = new JDBMWordsDataSource();
+        ((JDBMWordsDataSource) wordsDataSource).open();
+        ICategorisedWordsDataSource categorised = (ICategorisedWordsDataSource) wordsDataSource;
+        WordProbability wp = categorised.getWordProbability("category1", "h\u00e9llo");
+        assertEquals("category1", wp.getCategory());
+        assertEquals(1, wp.getMatchingCount());
+        assertEquals(0, wp.getNonMatchingCount());
+        wp = categorised.getWordProbability("category2", "h\u00e9llo");
+        assertEquals(0, wp.getMatchingCount());
+        assertEquals(1, wp.getNonMatchingCount());
+        assertEquals(1, wordsDataSource.getWordProbability("myWord").getMatchingCount());
+        assertNull(categorised.getWordProbability("category3", "h\u00e9llo"));
+    }
+
+    @Test
+    public void testGetAll() throws Exception {
+        JDBMWordsDataSource jdbmWordsDataSource = (JDBMWordsDataSource) wordsDataSource;
+        jdbmWordsDataSource.addMatch("myWord");
+        jdbmWordsDataSource.addMatch("category1", "word1");
+        jdbmWordsDataSource.addMatch("category1", "word2");
+        jdbmWordsDataSource.addNonMatch("category1", "word2");
+        jdbmWordsDataSource.addMatch("category2", "word1");
+
+        assertEquals(4, jdbmWordsDataSource.getAll().size());
+
+        Collection<WordProbability> wps = jdbmWordsDataSource.getAll("category1");
+        assertEquals(2, wps.size());
+        for (WordProbability wp : wps) {
+            assertEquals("category1", wp.getCategory());
+            if ("word2".equals(wp.getWord())) {
+                assertEquals(1, wp.getMatchingCount());
+                assertEquals(1, wp.getNonMatchingCount());
+            } else {
+                assertEquals("word1", wp.getWord());
+            }
+        }
+        assertTrue(jdbmWordsDataSource.getAll("category3").isEmpty());
+    }
+
+    @Test
+    public void testApplyDelta() throws Exception {
+        JDBMWordsDataSource jdbmWordsDataSource = (JDBMWordsDataSource) wordsDataSource;
+        assertEquals(0, jdbmWordsDataSource.getLastAppliedSequence());
+        WordProbability change = new WordProbability("category", "myWord");
+        change.setMatchingCount(3);
+        change.setNonMatchingCount(1);
+        jdbmWordsDataSource.applyDelta(1, Collections.singletonList(change));
+        jdbmWordsDataSource.applyDelta(2, Collections.singletonList(change));
+        jdbmWordsDataSource.close();
+
+        jdbmWordsDataSource = new JDBMWordsDataSource();
+        jdbmWordsDataSource.open();
+        wordsDataSource = jdbmWordsDataSource;
+        assertEquals(2, jdbmWordsDataSource.getLastAppliedSequence());
+        WordProbability wp = jdbmWordsDataSource.getWordProbability("category", "myWord");
+        assertEquals(6, wp.getMatchingCount());
+        assertEquals(2, wp.getNonMatchingCount());
+    }
+
+    @Test
+    public void testGetAllSorted() throws Exception {
+        JDBMWordsDataSource jdbmWordsDataSource = (JDBMWordsDataSource) wordsDataSource;
+        String[][] words = {{"zeta", "b"}, {"zeta", "a"}, {"alpha", "\ud83d\ude00"}, {"alpha", "\ue000"}, {"alpha", "z"}, {"alpha", "\u00e9"}};
+        for (String[] word : words) {
+            jdbmWordsDataSource.addMatch(word[0], word[1]);
+        }
+
+        List<WordProbability> expected = new ArrayList<>(jdbmWordsDataSource.getAll());
+        Collections.sort(expected, WordOrder.INSTANCE);
+        List<WordProbability> sorted = new ArrayList<>();
+        for (Iterator<WordProbability> it = jdbmWordsDataSource.getAllSorted(); it.hasNext(); ) {
+            sorted.add(it.next());
+        }
+        assertEquals(expected, sorted);
+        assertEquals("z", sorted.get(0).getWord());
+        assertEquals("\ud83d\ude00", sorted.get(3).getWord());
+    }
+
+    @Test
+    public void testRemoveUnsignificantWordProbabilities() throws Exception {
+        JDBMWordsDataSource jdbmWordsDataSource = (JDBMWordsDataSource) wordsDataSource;
+        for (int i = 0; i < 3000; i++) {
+            jdbmWordsDataSource.addMatch("neutral" + i);
+            jdbmWordsDataSource.addNonMatch("neutral" + i);
+            jdbmWordsDataSource.addMatch("match" + i);
+        }
+        jdbmWordsDataSource.addMatch("a");
+        jdbmWordsDataSource.addMatch("category1", "neutral");
+        jdbmWordsDataSource.addNonMatch("category1", "neutral");
+
+        jdbmWordsDataSource.removeUnsignificantWordProbabilities(ICategorisedClassifier.DEFAULT_CATEGORY);
+        assertEquals(3001, jdbmWordsDataSource.getAll().size());
+        assertNull(jdbmWordsDataSource.getWordProbability("a"));
+        assertNull(jdbmWordsDataSource.getWordProbability("neutral10"));
+        assertNotNull(jdbmWordsDataSource.getWordProbability("match10"));
+        assertNotNull(jdbmWordsDataSource.getWordProbability("category1", "neutral"));
+
+        jdbmWordsDataSource.removeUnsignificantWordProbabilities();
+        assertEquals(3000, jdbmWordsDataSource.getAll().size());
+    }
+
+    @Test
+    public void testCacheStatistics() throws Exception {
+        wordsDataSource.addMatch("myWord");
+        wordsDataSource.getWordProbability("myWord");
+
+        JDBMRecordCache recordCache = ((JDBMWordsDataSource) wordsDataSource).getRecordCache();
+        assertTrue(recordCache.getHitCount() > 0);
+        assertEquals(0, recordCache.getMissCount());
+    }
+
+    @Test
+    public void testByteSizedCache() throws Exception {
+        ((JDBMWordsDataSource) wordsDataSource).close();
+        wordsDataSource = new JDBMWordsDataSource(".", JDBMCacheType.LRU_BYTES, 4096);
+        ((JDBMWordsDataSource) wordsDataSource).open();
+
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            wordsDataSource.addMatch("myWord" + i);
+        }
+        wordsDataSource.addNonMatch("myWord1");
+        ((JDBMWordsDataSource) wordsDataSource).close();
+
+        wordsDataSource = new JDBMWordsDataSource(".", JDBMCacheType.LRU_BYTES, 4096);
+        ((JDBMWordsDataSource) wordsDataSource).open();
+        for (int i = 0; i < count; i++) {
+            WordProbability wp = wordsDataSource.getWordProbability("myWord" + i);
+            assertNotNull(wp);
+            assertEquals(1, wp.getMatchingCount());
+        }
+        assertEquals(1, wordsDataSource.getWordProbability("myWord1").getNonMatchingCount());
+        assertTrue(((JDBMWordsDataSource) wordsDataSource).getRecordCache().getMissCount() > 0);
+    }
+
+    @Test
+    public void testSoftCache() throws Exception {
+        ((JDBMWordsDataSource) wordsDataSource).close();
+        wordsDataSource = new JDBMWordsDataSource(".", JDBMCacheType.SOFT, 10);
+        ((JDBMWordsDataSource) wordsDataSource).open();
+
+        for (int i = 0; i < 100; i++) {
+            wordsDataSource.addNonMatch("myWord" + i);
+        }
+        assertEquals(1, wordsDataSource.getWordProbability("myWord50").getNonMatchingCount());
+    }
+
     @Test
     public void benchmark() throws Exception {
         long startTime = System.currentTimeMillis();